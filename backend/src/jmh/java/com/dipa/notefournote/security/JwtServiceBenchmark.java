@@ -0,0 +1,83 @@
+package com.dipa.notefournote.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authentication of a request carrying an access token: the previous path (a key and a parser built for each of the
+ * two parses), a single parse with a shared parser (a token seen for the first time) and a verified-token cache hit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private JwtParser sharedParser;
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        sharedParser = Jwts.parser().verifyWith(signingKey()).build();
+        jwtService = new JwtService(SECRET, 3_600_000, 604_800_000, 10_000, new SimpleMeterRegistry());
+        token = jwtService.generateToken(new UsernamePasswordAuthenticationToken("benchmark", null), false);
+    }
+
+    @Benchmark
+    public String parsedTwicePerRequest() {
+        final Claims claims = parse(token);
+        if (claims.getExpiration().before(new Date()) || !"access".equals(claims.get("token_type"))) {
+            return null;
+        }
+        return parse(token).getSubject();
+    }
+
+    @Benchmark
+    public String parsedOnceWithSharedParser() {
+        final Claims claims = sharedParser.parseSignedClaims(token).getPayload();
+        return "access".equals(claims.get("token_type")) ? claims.getSubject() : null;
+    }
+
+    @Benchmark
+    public Optional<String> verifiedTokenCacheHit() {
+        return jwtService.getUsernameFromAccessToken(token);
+    }
+
+    private static Claims parse(String token) {
+        return Jwts.parser()
+                .verifyWith(signingKey())
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    private static SecretKey signingKey() {
+        return Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
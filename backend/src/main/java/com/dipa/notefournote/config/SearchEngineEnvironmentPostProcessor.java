@@ -0,0 +1,52 @@
+package com.dipa.notefournote.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * With the embedded search engine (notes.search.engine=lucene) MongoDB is not needed at all: its auto-configuration
+ * and readiness check are switched off, otherwise the startup would wait for a server that is not there.
+ */
+public class SearchEngineEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    private static final String EXCLUDE = "spring.autoconfigure.exclude";
+    private static final String READINESS_INCLUDE = "management.endpoint.health.group.readiness.include";
+    private static final List<String> MONGO_AUTO_CONFIGURATIONS = List.of(
+            "org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.mongo.MongoRepositoriesAutoConfiguration");
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!"lucene".equals(environment.getProperty("notes.search.engine"))) {
+            return;
+        }
+
+        final Binder binder = Binder.get(environment);
+        final Map<String, Object> properties = new HashMap<>();
+
+        final Set<String> excluded = new LinkedHashSet<>(binder.bind(EXCLUDE, Bindable.listOf(String.class)).orElse(List.of()));
+        excluded.addAll(MONGO_AUTO_CONFIGURATIONS);
+        properties.put(EXCLUDE, String.join(",", excluded));
+
+        binder.bind(READINESS_INCLUDE, Bindable.listOf(String.class)).ifBound(readiness -> {
+            final List<String> contributors = new ArrayList<>(readiness);
+            contributors.remove("mongo");
+            properties.put(READINESS_INCLUDE, String.join(",", contributors));
+        });
+
+        environment.getPropertySources().addFirst(new MapPropertySource("searchEngine", properties));
+    }
+
+}
@@ -67,6 +67,20 @@ public class GlobalExceptionHandler {
         return new ErrorResponse("Nessun parametro di ricerca fornito");
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleInvalidCursor(InvalidCursorException ex) {
+        log.warn("Invalid pagination cursor: {}", ex.getMessage());
+        return new ErrorResponse("Cursore di paginazione non valido");
+    }
+
+    @ExceptionHandler(InvalidFieldSelectionException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleInvalidFieldSelection(InvalidFieldSelectionException ex) {
+        log.warn("Invalid field selection: {}", ex.getMessage());
+        return new ErrorResponse("Selezione dei campi non valida");
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleGenericException(Exception ex) {
@@ -81,6 +95,13 @@ public class GlobalExceptionHandler {
         return new ErrorResponse("Nota non trovata");
     }
 
+    @ExceptionHandler(RevisionNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ErrorResponse handleRevisionNotFound(RevisionNotFoundException ex) {
+        log.warn("Revision not found: {}", ex.getMessage());
+        return new ErrorResponse("Revisione non trovata");
+    }
+
     @ExceptionHandler(NoteAccessDeniedException.class)
     @ResponseStatus(HttpStatus.FORBIDDEN)
     public ErrorResponse handleNoteAccessDenied(NoteAccessDeniedException ex) {
@@ -0,0 +1,9 @@
+package com.dipa.notefournote.exception;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+}
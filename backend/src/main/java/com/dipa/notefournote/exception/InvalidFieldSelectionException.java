@@ -0,0 +1,9 @@
+package com.dipa.notefournote.exception;
+
+public class InvalidFieldSelectionException extends RuntimeException {
+
+    public InvalidFieldSelectionException(String message) {
+        super(message);
+    }
+
+}
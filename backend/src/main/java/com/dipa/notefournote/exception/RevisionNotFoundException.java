@@ -0,0 +1,9 @@
+package com.dipa.notefournote.exception;
+
+public class RevisionNotFoundException extends RuntimeException {
+
+    public RevisionNotFoundException(String message) {
+        super(message);
+    }
+
+}
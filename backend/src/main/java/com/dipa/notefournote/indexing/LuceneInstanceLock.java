@@ -0,0 +1,56 @@
+package com.dipa.notefournote.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Keeps the embedded Lucene index to a single application instance. Each instance would have its own index on local
+ * disk, but only the one holding the outbox lock applies the writes (and the reconciler repairs): the indexes of the
+ * others would go stale. A session advisory lock, held on a dedicated connection while the instance runs, makes any
+ * other instance fail at startup.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "notes.search.engine", havingValue = "lucene")
+public class LuceneInstanceLock implements DisposableBean {
+
+    private static final long LOCK_KEY = 0x4e6f74654c75636eL;
+
+    private final Connection connection;
+
+    public LuceneInstanceLock(DataSource dataSource) throws SQLException {
+        this.connection = dataSource.getConnection();
+        if (!execute("select pg_try_advisory_lock(?)")) {
+            connection.close();
+            throw new IllegalStateException("Another instance is running on the Lucene search index: "
+                    + "the embedded index supports a single instance, use the MongoDB engine to scale out");
+        }
+        log.info("Lucene search index locked to this instance");
+    }
+
+    // The connection goes back to the pool: the session lock is released explicitly
+    @Override
+    public void destroy() throws SQLException {
+        try (connection) {
+            execute("select pg_advisory_unlock(?)");
+        }
+    }
+
+    private boolean execute(String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, LOCK_KEY);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.dipa.notefournote.indexing;
+
+import com.dipa.notefournote.notes.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the indexed state of a set of notes from Postgres, with one query per document part whatever the number of notes.
+ */
+@Component
+@RequiredArgsConstructor
+public class NoteDocumentLoader {
+
+    private final NoteRepository noteRepository;
+    private final NoteMapper noteMapper;
+    private final TagDictionary tagDictionary;
+
+    // Deleted notes are missing from the result
+    public Map<UUID, NoteSummary> findSummaries(Collection<UUID> noteIds) {
+        if (noteIds.isEmpty()) {
+            return Map.of();
+        }
+
+        return noteRepository.findSummariesByIdIn(noteIds).stream()
+                .collect(Collectors.toMap(NoteSummary::id, summary -> summary));
+    }
+
+    public Map<UUID, String> findContents(Collection<UUID> noteIds) {
+        // Contents may be null: collected in a plain map
+        final Map<UUID, String> contents = new HashMap<>();
+        if (!noteIds.isEmpty()) {
+            noteRepository.findContentsByIdIn(noteIds).forEach(content -> contents.put(content.noteId(), content.value()));
+        }
+        return contents;
+    }
+
+    public Map<UUID, Set<String>> findTagNames(Collection<UUID> noteIds) {
+        if (noteIds.isEmpty()) {
+            return Map.of();
+        }
+
+        final List<NoteTagId> noteTags = noteRepository.findTagIdsByNoteIdIn(noteIds);
+        final Map<Integer, String> tagNames = tagDictionary.namesOf(noteTags.stream()
+                .map(NoteTagId::tagId)
+                .collect(Collectors.toSet()));
+
+        return noteTags.stream()
+                .collect(Collectors.groupingBy(NoteTagId::noteId,
+                        Collectors.mapping(noteTag -> tagNames.get(noteTag.tagId()), Collectors.toSet())));
+    }
+
+    public Map<UUID, Set<String>> findSharedUsernames(Collection<UUID> noteIds) {
+        if (noteIds.isEmpty()) {
+            return Map.of();
+        }
+
+        return noteRepository.findSharedUsernamesByNoteIdIn(noteIds).stream()
+                .collect(Collectors.groupingBy(NoteAttribute::noteId,
+                        Collectors.mapping(NoteAttribute::value, Collectors.toSet())));
+    }
+
+    public NoteDocument toDocument(NoteSummary summary, Map<UUID, String> contents, Map<UUID, Set<String>> tags, Map<UUID, Set<String>> sharers) {
+        return noteMapper.toDocument(
+                summary,
+                contents.get(summary.id()),
+                tags.getOrDefault(summary.id(), Set.of()),
+                sharers.getOrDefault(summary.id(), Set.of()));
+    }
+
+    public List<NoteDocument> toDocuments(List<NoteSummary> summaries) {
+        final List<UUID> noteIds = summaries.stream().map(NoteSummary::id).toList();
+        final Map<UUID, String> contents = findContents(noteIds);
+        final Map<UUID, Set<String>> tags = findTagNames(noteIds);
+        final Map<UUID, Set<String>> sharers = findSharedUsernames(noteIds);
+
+        return summaries.stream()
+                .map(summary -> toDocument(summary, contents, tags, sharers))
+                .toList();
+    }
+
+}
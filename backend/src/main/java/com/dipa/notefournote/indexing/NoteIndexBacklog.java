@@ -0,0 +1,6 @@
+package com.dipa.notefournote.indexing;
+
+import java.time.LocalDateTime;
+
+// Pending outbox events and the creation time of the oldest one (null when the outbox is empty)
+public record NoteIndexBacklog(long events, LocalDateTime oldestCreatedAt) {}
@@ -0,0 +1,7 @@
+package com.dipa.notefournote.indexing;
+
+public enum NoteIndexOperation {
+    UPSERT,
+    PATCH,
+    DELETE
+}
@@ -0,0 +1,44 @@
+package com.dipa.notefournote.indexing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Records the changes to sync to the search index in the transaction of the note write: they reach the index only if it commits.
+ */
+@Component
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class NoteIndexOutbox {
+
+    private final NoteIndexOutboxRepository outboxRepository;
+
+    public void upsert(UUID noteId) {
+        outboxRepository.save(new NoteIndexOutboxEntity(noteId, NoteIndexOperation.UPSERT, null));
+    }
+
+    public void upsertAll(Collection<UUID> noteIds) {
+        outboxRepository.saveAll(noteIds.stream()
+                .map(noteId -> new NoteIndexOutboxEntity(noteId, NoteIndexOperation.UPSERT, null))
+                .toList());
+    }
+
+    public void patch(UUID noteId, Set<String> changedFields) {
+        if (changedFields.isEmpty()) {
+            return;
+        }
+        outboxRepository.save(new NoteIndexOutboxEntity(noteId, NoteIndexOperation.PATCH, List.copyOf(changedFields)));
+    }
+
+    public void delete(UUID noteId, Collection<String> readers) {
+        outboxRepository.save(new NoteIndexOutboxEntity(noteId, List.copyOf(readers)));
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.dipa.notefournote.indexing;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "note_index_outbox")
+public class NoteIndexOutboxEntity {
+
+    // Pooled sequence: bulk writes (e.g. imports) insert their events through JDBC batching
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "note_index_outbox_seq")
+    @SequenceGenerator(name = "note_index_outbox_seq", sequenceName = "note_index_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "note_id", nullable = false)
+    private UUID noteId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private NoteIndexOperation operation;
+
+    // Document fields changed by a PATCH: their values are read from Postgres when the event is drained
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "changed_fields")
+    private List<String> changedFields;
+
+    // Readers of a deleted note, whose search results change once the deletion is synced: they cannot be read anymore
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "readers")
+    private List<String> readers;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    public NoteIndexOutboxEntity(UUID noteId, NoteIndexOperation operation, List<String> changedFields) {
+        this.noteId = noteId;
+        this.operation = operation;
+        this.changedFields = changedFields;
+    }
+
+    public NoteIndexOutboxEntity(UUID noteId, List<String> readers) {
+        this(noteId, NoteIndexOperation.DELETE, null);
+        this.readers = readers;
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.dipa.notefournote.indexing;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface NoteIndexOutboxRepository extends JpaRepository<NoteIndexOutboxEntity, Long> {
+
+    // Transaction-scoped lock: a single indexer drains the outbox at a time across all the instances
+    @Query(value = "select pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryLock(long key);
+
+    // Waits for the batch being drained to commit, and keeps the indexer out until the transaction ends
+    @Query(value = "select 1 from pg_advisory_xact_lock(:key)", nativeQuery = true)
+    int lock(long key);
+
+    @Query("""
+            select e from NoteIndexOutboxEntity e
+            where e.nextAttemptAt is null or e.nextAttemptAt <= :now
+            order by e.id
+            """)
+    List<NoteIndexOutboxEntity> findDue(LocalDateTime now, Limit limit);
+
+    @Query("""
+            select new com.dipa.notefournote.indexing.NoteIndexBacklog(count(e), min(e.createdAt))
+            from NoteIndexOutboxEntity e
+            """)
+    NoteIndexBacklog findBacklog();
+
+}
@@ -0,0 +1,168 @@
+package com.dipa.notefournote.indexing;
+
+import com.dipa.notefournote.notes.CustomNoteSearchRepository;
+import com.dipa.notefournote.notes.NoteKeyDigest;
+import com.dipa.notefournote.notes.NoteKeyVersion;
+import com.dipa.notefournote.notes.NoteRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Detects the drift between Postgres and the search index (rejected writes, lost events, manual changes) and repairs it.
+ * Digests of key ranges (id prefixes) are compared on both sides, only the ranges that differ are split further, and
+ * only the notes of the smallest differing ranges are compared one by one: matching ranges cost one aggregate each.
+ */
+@Slf4j
+@Component
+public class NoteIndexReconciler {
+
+    // Ids are split by hex prefix up to their first dash
+    private static final int MAX_PREFIX_LENGTH = 8;
+    private static final int UUID_HEX_LENGTH = 32;
+
+    private final NoteRepository noteRepository;
+    private final CustomNoteSearchRepository noteSearchRepository;
+    private final NoteIndexOutbox noteIndexOutbox;
+    private final NoteReindexJob reindexJob;
+    private final TransactionTemplate transactionTemplate;
+    private final int leafSize;
+
+    private final Counter repairedNotes;
+
+    public NoteIndexReconciler(NoteRepository noteRepository,
+                               CustomNoteSearchRepository noteSearchRepository,
+                               NoteIndexOutbox noteIndexOutbox,
+                               NoteReindexJob reindexJob,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${notes.index.reconcile.leaf-size:256}") int leafSize) {
+        this.noteRepository = noteRepository;
+        this.noteSearchRepository = noteSearchRepository;
+        this.noteIndexOutbox = noteIndexOutbox;
+        this.reindexJob = reindexJob;
+        this.transactionTemplate = transactionTemplate;
+        this.leafSize = leafSize;
+
+        this.repairedNotes = Counter.builder("notes.index.reconcile.repaired")
+                .description("Notes found out of sync with the search index and queued again")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${notes.index.reconcile.cron:0 0 4 * * *}")
+    public void reconcile() {
+        if (reindexJob.isRunning()) {
+            log.info("Search index rebuild running, skipping the reconciliation");
+            return;
+        }
+
+        final Run run = new Run();
+        try {
+            compare("", run);
+            log.info("Search index reconciled: {} ranges compared, {} notes compared one by one, {} notes repaired",
+                    run.comparedRanges, run.comparedNotes, run.repairedNotes);
+        } catch (RuntimeException e) {
+            log.error("Search index reconciliation failed after {} ranges", run.comparedRanges, e);
+        }
+    }
+
+    // Sub-ranges of prefix one hex digit longer, from a single aggregate on each side
+    private void compare(String prefix, Run run) {
+        final int length = prefix.length() + 1;
+        final Map<String, NoteKeyDigest> expected = byPrefix(noteRepository.digestKeys(first(prefix), last(prefix), length));
+        final Map<String, NoteKeyDigest> actual = byPrefix(noteSearchRepository.digestKeys(prefix, length));
+        run.comparedRanges++;
+
+        final TreeSet<String> prefixes = new TreeSet<>(expected.keySet());
+        prefixes.addAll(actual.keySet());
+        for (String child : prefixes) {
+            final NoteKeyDigest expectedDigest = expected.get(child);
+            final NoteKeyDigest actualDigest = actual.get(child);
+            if (Objects.equals(expectedDigest, actualDigest)) {
+                continue;
+            }
+
+            final long notes = Math.max(expectedDigest == null ? 0 : expectedDigest.notes(), actualDigest == null ? 0 : actualDigest.notes());
+            if (notes <= leafSize || child.length() == MAX_PREFIX_LENGTH) {
+                repair(child, run);
+            } else {
+                compare(child, run);
+            }
+        }
+    }
+
+    // Notes missing or stale in the index are synced again, the ones deleted from Postgres are removed:
+    // repairs are idempotent outbox events, a note changed meanwhile is at worst synced twice
+    private void repair(String prefix, Run run) {
+        final Map<UUID, NoteKeyVersion> expected = versions(noteRepository.findKeyVersions(first(prefix), last(prefix)));
+        final Map<UUID, NoteKeyVersion> actual = versions(noteSearchRepository.findKeyVersions(prefix));
+        run.comparedNotes += expected.size() + actual.size();
+
+        final List<UUID> stale = expected.entrySet().stream()
+                .filter(entry -> !entry.getValue().equals(actual.get(entry.getKey())))
+                .map(Map.Entry::getKey)
+                .toList();
+        final List<UUID> deleted = actual.keySet().stream()
+                .filter(noteId -> !expected.containsKey(noteId))
+                .toList();
+        if (stale.isEmpty() && deleted.isEmpty()) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            noteIndexOutbox.upsertAll(stale);
+            // The readers of an orphan document are not known: its stale results leave the search caches when they expire
+            deleted.forEach(noteId -> noteIndexOutbox.delete(noteId, List.of()));
+        });
+        run.repairedNotes += stale.size() + deleted.size();
+        repairedNotes.increment(stale.size() + deleted.size());
+        log.warn("Search index out of sync on ids '{}*': {} notes queued again, {} queued for removal", prefix, stale.size(), deleted.size());
+    }
+
+    private static Map<String, NoteKeyDigest> byPrefix(List<NoteKeyDigest> digests) {
+        return digests.stream().collect(Collectors.toMap(NoteKeyDigest::prefix, Function.identity()));
+    }
+
+    // The index keeps update times to the millisecond
+    private static Map<UUID, NoteKeyVersion> versions(List<NoteKeyVersion> keyVersions) {
+        final Map<UUID, NoteKeyVersion> versions = new HashMap<>(keyVersions.size());
+        keyVersions.forEach(version -> versions.put(version.id(), new NoteKeyVersion(version.id(),
+                version.updatedAt().truncatedTo(ChronoUnit.MILLIS), version.shares(), version.tags())));
+        return versions;
+    }
+
+    // Smallest and largest ids starting with prefix (a key range of Postgres)
+    static UUID first(String prefix) {
+        return toUuid(prefix + "0".repeat(UUID_HEX_LENGTH - prefix.length()));
+    }
+
+    static UUID last(String prefix) {
+        return toUuid(prefix + "f".repeat(UUID_HEX_LENGTH - prefix.length()));
+    }
+
+    private static UUID toUuid(String hex) {
+        return UUID.fromString(hex.substring(0, 8) + "-" + hex.substring(8, 12) + "-" + hex.substring(12, 16)
+                + "-" + hex.substring(16, 20) + "-" + hex.substring(20));
+    }
+
+    private static final class Run {
+        private int comparedRanges;
+        private long comparedNotes;
+        private long repairedNotes;
+    }
+
+}
@@ -0,0 +1,234 @@
+package com.dipa.notefournote.indexing;
+
+import com.dipa.notefournote.notes.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Background sync of the search index: drains the outbox in batches, one bulk write per batch.
+ */
+@Slf4j
+@Component
+public class NoteIndexer {
+
+    static final long LOCK_KEY = 0x4e6f7465496e6478L;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final NoteIndexOutboxRepository outboxRepository;
+    private final CustomNoteSearchRepository noteSearchRepository;
+    private final NoteDocumentLoader documentLoader;
+    private final NoteReindexJob reindexJob;
+    private final UserNoteVersions userNoteVersions;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration retryBackoff;
+    private final Duration maxBackoff;
+
+    private final Counter syncedNotes;
+    private final Counter failedNotes;
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicReference<LocalDateTime> oldestPending = new AtomicReference<>();
+
+    public NoteIndexer(NoteIndexOutboxRepository outboxRepository,
+                       CustomNoteSearchRepository noteSearchRepository,
+                       NoteDocumentLoader documentLoader,
+                       NoteReindexJob reindexJob,
+                       UserNoteVersions userNoteVersions,
+                       TransactionTemplate transactionTemplate,
+                       MeterRegistry meterRegistry,
+                       @Value("${notes.index.outbox.batch-size:500}") int batchSize,
+                       @Value("${notes.index.outbox.retry-backoff:1s}") Duration retryBackoff,
+                       @Value("${notes.index.outbox.max-backoff:5m}") Duration maxBackoff) {
+        this.outboxRepository = outboxRepository;
+        this.noteSearchRepository = noteSearchRepository;
+        this.documentLoader = documentLoader;
+        this.reindexJob = reindexJob;
+        this.userNoteVersions = userNoteVersions;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.retryBackoff = retryBackoff;
+        this.maxBackoff = maxBackoff;
+
+        this.syncedNotes = Counter.builder("notes.index.outbox.synced")
+                .description("Notes written to the search index")
+                .register(meterRegistry);
+        this.failedNotes = Counter.builder("notes.index.outbox.failed")
+                .description("Note syncs failed and scheduled for a retry")
+                .register(meterRegistry);
+        Gauge.builder("notes.index.outbox.backlog", backlog, AtomicLong::get)
+                .description("Outbox events waiting to be synced")
+                .register(meterRegistry);
+        // Computed on read: the lag keeps growing even if the indexer is stuck
+        Gauge.builder("notes.index.outbox.lag", this, NoteIndexer::lagSeconds)
+                .description("Age of the oldest event waiting to be synced")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${notes.index.outbox.poll-interval:500ms}")
+    public void drain() {
+        // Full batches mean a backlog: they are drained straight away, each in its own transaction
+        Integer drained;
+        do {
+            drained = transactionTemplate.execute(status -> drainBatch());
+        } while (drained != null && drained == batchSize);
+
+        final NoteIndexBacklog pending = outboxRepository.findBacklog();
+        backlog.set(pending.events());
+        oldestPending.set(pending.oldestCreatedAt());
+    }
+
+    private int drainBatch() {
+        if (!outboxRepository.tryLock(LOCK_KEY)) {
+            return 0;
+        }
+
+        final LocalDateTime now = LocalDateTime.now();
+        final List<NoteIndexOutboxEntity> events = outboxRepository.findDue(now, Limit.of(batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        final Map<UUID, List<NoteIndexOutboxEntity>> eventsByNote = events.stream()
+                .collect(Collectors.groupingBy(NoteIndexOutboxEntity::getNoteId, LinkedHashMap::new, Collectors.toList()));
+
+        // A running reindex syncs these notes again once its collection replaces the current one
+        reindexJob.recordChanged(eventsByNote.keySet());
+
+        final IndexBatch batch = buildWrites(eventsByNote);
+        Set<String> failedIds;
+        String error = "Rejected by the search index";
+        try {
+            failedIds = noteSearchRepository.bulkWrite(batch.writes());
+        } catch (RuntimeException e) {
+            log.warn("Failed to sync {} notes to the search index", eventsByNote.size(), e);
+            failedIds = eventsByNote.keySet().stream().map(UUID::toString).collect(Collectors.toSet());
+            error = e.toString();
+        }
+        // Even a failed bulk write may have been partially applied; the versions are shared by all the instances
+        userNoteVersions.bumpSearch(batch.readers());
+
+        // Events are removed once their note is synced, the others are retried with an exponential backoff
+        final List<NoteIndexOutboxEntity> synced = new ArrayList<>(events.size());
+        for (Map.Entry<UUID, List<NoteIndexOutboxEntity>> entry : eventsByNote.entrySet()) {
+            if (failedIds.contains(entry.getKey().toString())) {
+                for (NoteIndexOutboxEntity event : entry.getValue()) {
+                    scheduleRetry(event, now, error);
+                }
+            } else {
+                synced.addAll(entry.getValue());
+            }
+        }
+        outboxRepository.deleteAllInBatch(synced);
+
+        syncedNotes.increment(eventsByNote.size() - failedIds.size());
+        failedNotes.increment(failedIds.size());
+        log.debug("Synced {} outbox events of {} notes ({} failed)", events.size(), eventsByNote.size(), failedIds.size());
+        return events.size();
+    }
+
+    // The writes carry the current state read from Postgres, not the one of each event: they are idempotent
+    // and do not depend on the order of the events, so a note needs a single write however many events it has
+    private IndexBatch buildWrites(Map<UUID, List<NoteIndexOutboxEntity>> eventsByNote) {
+        final Set<UUID> replacedIds = new HashSet<>();
+        final Map<UUID, Set<String>> patchedFields = new HashMap<>();
+        eventsByNote.forEach((noteId, events) -> {
+            if (events.stream().anyMatch(event -> event.getOperation() != NoteIndexOperation.PATCH)) {
+                replacedIds.add(noteId);
+            } else {
+                patchedFields.put(noteId, events.stream()
+                        .flatMap(event -> event.getChangedFields().stream())
+                        .collect(Collectors.toSet()));
+            }
+        });
+
+        // Deleted notes have no summary; content and tags are read only for the notes that need them,
+        // shares for all of them (the readers whose search results change)
+        final Map<UUID, NoteSummary> summaries = documentLoader.findSummaries(eventsByNote.keySet());
+        final Map<UUID, String> contents = documentLoader.findContents(idsWithField(replacedIds, patchedFields, NoteDocument.CONTENT));
+        final Map<UUID, Set<String>> tags = documentLoader.findTagNames(idsWithField(replacedIds, patchedFields, NoteDocument.TAGS));
+        final Map<UUID, Set<String>> sharers = documentLoader.findSharedUsernames(summaries.keySet());
+
+        final List<NoteIndexWrite> writes = new ArrayList<>(eventsByNote.size());
+        final Set<String> readers = new HashSet<>();
+        for (Map.Entry<UUID, List<NoteIndexOutboxEntity>> entry : eventsByNote.entrySet()) {
+            final UUID noteId = entry.getKey();
+            final NoteSummary summary = summaries.get(noteId);
+            if (summary == null) {
+                // A patched note deleted in the meantime is removed by its own DELETE event
+                if (replacedIds.contains(noteId)) {
+                    writes.add(NoteIndexWrite.delete(noteId.toString()));
+                    entry.getValue().stream()
+                            .filter(event -> event.getReaders() != null)
+                            .forEach(event -> readers.addAll(event.getReaders()));
+                }
+                continue;
+            }
+
+            readers.addAll(NoteMapper.readersOf(summary.ownerUsername(), sharers.getOrDefault(noteId, Set.of())));
+            if (replacedIds.contains(noteId)) {
+                writes.add(NoteIndexWrite.replace(documentLoader.toDocument(summary, contents, tags, sharers)));
+            } else {
+                // Title, content and tag changes also move the update timestamp used by the recency order
+                final Map<String, Object> fields = new HashMap<>();
+                fields.put(NoteDocument.UPDATED_AT, summary.updatedAt());
+                for (String field : patchedFields.get(noteId)) {
+                    switch (field) {
+                        case NoteDocument.TITLE -> fields.put(field, summary.title());
+                        case NoteDocument.CONTENT -> fields.put(field, contents.get(noteId));
+                        case NoteDocument.TAGS -> fields.put(field, List.copyOf(tags.getOrDefault(noteId, Set.of())));
+                        case NoteDocument.SHARED_WITH_USERNAMES -> {
+                            final Set<String> sharedWith = sharers.getOrDefault(noteId, Set.of());
+                            fields.put(field, List.copyOf(sharedWith));
+                            fields.put(NoteDocument.READERS, NoteMapper.readersOf(summary.ownerUsername(), sharedWith));
+                        }
+                        default -> log.warn("Ignoring unknown index field '{}' of note '{}'", field, noteId);
+                    }
+                }
+                writes.add(NoteIndexWrite.update(noteId.toString(), fields));
+            }
+        }
+        return new IndexBatch(writes, readers);
+    }
+
+    private static Set<UUID> idsWithField(Set<UUID> replacedIds, Map<UUID, Set<String>> patchedFields, String field) {
+        final Set<UUID> ids = new HashSet<>(replacedIds);
+        patchedFields.forEach((noteId, fields) -> {
+            if (fields.contains(field)) {
+                ids.add(noteId);
+            }
+        });
+        return ids;
+    }
+
+    private void scheduleRetry(NoteIndexOutboxEntity event, LocalDateTime now, String error) {
+        event.setAttempts(event.getAttempts() + 1);
+
+        final Duration backoff = retryBackoff.multipliedBy(1L << Math.min(event.getAttempts() - 1, 20));
+        event.setNextAttemptAt(now.plus(backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff));
+        event.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+    }
+
+    // Readers of the synced notes: those of a deleted note come from its DELETE events
+    private record IndexBatch(List<NoteIndexWrite> writes, Set<String> readers) {}
+
+    private double lagSeconds() {
+        final LocalDateTime oldest = oldestPending.get();
+        return oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toMillis() / 1000.0;
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.dipa.notefournote.indexing;
+
+import com.dipa.notefournote.notes.NoteDocument;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Fills the readers field of the documents indexed before it existed, so they stay searchable without a full rebuild.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "notes.search.engine", havingValue = "mongodb", matchIfMissing = true)
+public class NoteReadersBackfill {
+
+    private final MongoTemplate mongoTemplate;
+
+    // Server-side pipeline update: nothing matches (and nothing is sent) once every document has readers
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        final Document missingReaders = new Document(NoteDocument.READERS, new Document("$exists", false));
+        final Document setReaders = new Document("$set", new Document(NoteDocument.READERS, new Document("$setUnion", List.of(
+                List.of("$ownerUsername"),
+                new Document("$ifNull", List.of("$" + NoteDocument.SHARED_WITH_USERNAMES, List.of()))))));
+
+        try {
+            final long updated = mongoTemplate.getCollection(mongoTemplate.getCollectionName(NoteDocument.class))
+                    .updateMany(missingReaders, List.of(setReaders))
+                    .getModifiedCount();
+            if (updated > 0) {
+                log.info("Backfilled the readers of {} indexed notes", updated);
+            }
+        } catch (RuntimeException e) {
+            // Not fatal: the documents can also be fixed by a full rebuild (POST /actuator/noteindex)
+            log.warn("Failed to backfill the readers of the indexed notes", e);
+        }
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.dipa.notefournote.indexing;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+// Note synced while a rebuild runs: it may be stale in the shadow collection, and is synced again after the swap
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "note_reindex_changes")
+public class NoteReindexChangeEntity {
+
+    @Id
+    @Column(name = "note_id")
+    private UUID noteId;
+
+}
@@ -0,0 +1,27 @@
+package com.dipa.notefournote.indexing;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface NoteReindexChangeRepository extends JpaRepository<NoteReindexChangeEntity, UUID> {
+
+    // Recorded only while a rebuild runs; deleted notes included, they may still be in the shadow collection
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            insert into note_reindex_changes (note_id)
+            select ids.note_id from unnest(:noteIds) as ids(note_id)
+            where exists (select 1 from note_reindex_runs)
+            on conflict do nothing
+            """)
+    void recordChanges(UUID[] noteIds);
+
+    @Query(nativeQuery = true, value = "delete from note_reindex_changes returning note_id")
+    List<UUID> takeAll();
+
+}
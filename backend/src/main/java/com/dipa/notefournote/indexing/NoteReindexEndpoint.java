@@ -0,0 +1,29 @@
+package com.dipa.notefournote.indexing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Admin endpoint rebuilding the search index from Postgres (POST starts the job, GET reports its progress).
+ */
+@Component
+@Endpoint(id = "noteindex")
+@RequiredArgsConstructor
+public class NoteReindexEndpoint {
+
+    private final NoteReindexJob reindexJob;
+
+    @ReadOperation
+    public NoteReindexStatus status() {
+        return reindexJob.status();
+    }
+
+    @WriteOperation
+    public NoteReindexStatus reindex() {
+        return reindexJob.start();
+    }
+
+}
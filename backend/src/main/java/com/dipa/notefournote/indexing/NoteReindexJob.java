@@ -0,0 +1,339 @@
+package com.dipa.notefournote.indexing;
+
+import com.dipa.notefournote.notes.CustomNoteSearchRepository;
+import com.dipa.notefournote.notes.NoteDocument;
+import com.dipa.notefournote.notes.NoteIndexRebuild;
+import com.dipa.notefournote.notes.NoteRepository;
+import com.dipa.notefournote.notes.NoteSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds the search index from Postgres next to the live one, loading key ranges of notes in parallel,
+ * and then swaps it with the live index. A session advisory lock, held on a dedicated connection for the whole
+ * rebuild, keeps it to one instance at a time: the shadow collection is shared by all of them.
+ */
+@Slf4j
+@Component
+public class NoteReindexJob {
+
+    private static final long LOCK_KEY = 0x4e6f74655265696eL;
+
+    private final NoteRepository noteRepository;
+    private final NoteDocumentLoader documentLoader;
+    private final NoteIndexOutbox noteIndexOutbox;
+    private final NoteIndexOutboxRepository outboxRepository;
+    private final NoteReindexRunRepository runRepository;
+    private final NoteReindexChangeRepository changeRepository;
+    private final CustomNoteSearchRepository noteSearchRepository;
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+    private final int partitions;
+    private final int parallelism;
+    private final int batchSize;
+
+    private volatile Run run;
+
+    public NoteReindexJob(NoteRepository noteRepository,
+                          NoteDocumentLoader documentLoader,
+                          NoteIndexOutbox noteIndexOutbox,
+                          NoteIndexOutboxRepository outboxRepository,
+                          NoteReindexRunRepository runRepository,
+                          NoteReindexChangeRepository changeRepository,
+                          CustomNoteSearchRepository noteSearchRepository,
+                          DataSource dataSource,
+                          TransactionTemplate transactionTemplate,
+                          @Value("${notes.index.reindex.partitions:16}") int partitions,
+                          @Value("${notes.index.reindex.parallelism:4}") int parallelism,
+                          @Value("${notes.index.reindex.batch-size:1000}") int batchSize) {
+        this.noteRepository = noteRepository;
+        this.documentLoader = documentLoader;
+        this.noteIndexOutbox = noteIndexOutbox;
+        this.outboxRepository = outboxRepository;
+        this.runRepository = runRepository;
+        this.changeRepository = changeRepository;
+        this.noteSearchRepository = noteSearchRepository;
+        this.dataSource = dataSource;
+        this.transactionTemplate = transactionTemplate;
+        this.partitions = partitions;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+    }
+
+    public synchronized NoteReindexStatus start() {
+        if (run != null && run.isActive()) {
+            log.info("Search index rebuild already running");
+            return run.status();
+        }
+
+        final Connection lock = tryLock();
+        if (lock == null) {
+            log.info("Search index rebuild already running on another instance");
+            return NoteReindexStatus.runningElsewhere(runRepository.findStartedAt().orElse(null));
+        }
+
+        run = new Run(partitions);
+        final Run current = run;
+        Thread.ofPlatform()
+                .name("note-reindex")
+                .daemon()
+                .start(() -> {
+                    try {
+                        execute(current);
+                    } finally {
+                        unlock(lock);
+                    }
+                });
+        return current.status();
+    }
+
+    // A new deployment (or a deleted index) is filled from Postgres without waiting for an admin:
+    // the instances started together skip it while the first one holds the lock
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        try {
+            if (noteSearchRepository.count() == 0 && noteRepository.count() > 0) {
+                log.info("Search index is empty, rebuilding it from Postgres");
+                start();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to check whether the search index is empty", e);
+        }
+    }
+
+    public NoteReindexStatus status() {
+        final Run current = run;
+        if (current != null && current.isActive()) {
+            return current.status();
+        }
+        final Optional<LocalDateTime> startedElsewhere = startedElsewhere();
+        if (startedElsewhere.isPresent()) {
+            return NoteReindexStatus.runningElsewhere(startedElsewhere.get());
+        }
+        return current == null ? NoteReindexStatus.idle() : current.status();
+    }
+
+    public boolean isRunning() {
+        final Run current = run;
+        return current != null && current.isActive() || startedElsewhere().isPresent();
+    }
+
+    // Called by the indexer in the transaction of the batch: recorded only while a rebuild runs on any instance
+    public void recordChanged(Collection<UUID> noteIds) {
+        changeRepository.recordChanges(noteIds.toArray(UUID[]::new));
+    }
+
+    private void execute(Run current) {
+        log.info("Starting search index rebuild ({} partitions, {} workers)", partitions, parallelism);
+
+        NoteIndexRebuild rebuild = null;
+        try {
+            // From here on the notes synced by the indexer are recorded, whichever instance drains the outbox
+            transactionTemplate.executeWithoutResult(status -> {
+                clearRecordedChanges();
+                runRepository.save(new NoteReindexRunEntity(current.startedAt));
+            });
+
+            current.totalNotes = noteRepository.count();
+            rebuild = noteSearchRepository.startRebuild();
+            final NoteIndexRebuild target = rebuild;
+
+            final ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+            try {
+                CompletableFuture.allOf(keyRanges(partitions).stream()
+                                .map(range -> CompletableFuture.runAsync(() -> indexRange(range, target, current), workers))
+                                .toArray(CompletableFuture[]::new))
+                        .join();
+            } finally {
+                workers.shutdownNow();
+            }
+
+            // No batch is drained during the swap: every note synced on the previous collection is recorded,
+            // and synced again on the new one
+            current.state = NoteReindexState.SWAPPING;
+            final List<UUID> staleNotes = transactionTemplate.execute(status -> {
+                outboxRepository.lock(NoteIndexer.LOCK_KEY);
+                target.publish();
+                runRepository.deleteAllInBatch();
+                final List<UUID> changed = changeRepository.takeAll();
+                noteIndexOutbox.upsertAll(changed);
+                return changed;
+            });
+
+            current.finish(NoteReindexState.COMPLETED, null);
+            log.info("Search index rebuild completed: {} notes indexed, {} notes queued again", current.indexedNotes.get(), staleNotes.size());
+        } catch (RuntimeException e) {
+            current.finish(NoteReindexState.FAILED, e.toString());
+            log.error("Search index rebuild failed", e);
+            if (rebuild != null) {
+                rebuild.discard();
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> clearRecordedChanges());
+            } catch (RuntimeException clearFailure) {
+                log.warn("Failed to stop recording the notes synced during the rebuild", clearFailure);
+            }
+        }
+    }
+
+    private void clearRecordedChanges() {
+        runRepository.deleteAllInBatch();
+        changeRepository.deleteAllInBatch();
+    }
+
+    // A run left by a crashed instance is ignored: its session lock went away with its connection
+    private Optional<LocalDateTime> startedElsewhere() {
+        return transactionTemplate.execute(status -> runRepository.findStartedAt()
+                .filter(startedAt -> !runRepository.tryLock(LOCK_KEY)));
+    }
+
+    private Connection tryLock() {
+        try {
+            final Connection connection = dataSource.getConnection();
+            try {
+                if (execute(connection, "select pg_try_advisory_lock(?)")) {
+                    return connection;
+                }
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+            connection.close();
+            return null;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to lock the search index rebuild", e);
+        }
+    }
+
+    // The connection goes back to the pool: the session lock is released explicitly
+    private void unlock(Connection connection) {
+        try (connection) {
+            execute(connection, "select pg_advisory_unlock(?)");
+        } catch (SQLException e) {
+            log.warn("Failed to release the search index rebuild lock", e);
+        }
+    }
+
+    private static boolean execute(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, LOCK_KEY);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+
+    private void indexRange(KeyRange range, NoteIndexRebuild rebuild, Run current) {
+        try {
+            indexKeys(range, rebuild, current);
+        } catch (RuntimeException e) {
+            // Stops the other partitions: the rebuild is discarded anyway
+            current.state = NoteReindexState.FAILED;
+            throw e;
+        }
+    }
+
+    // Keyset scan of the range in short transactions, each batch loaded with a bulk insert
+    private void indexKeys(KeyRange range, NoteIndexRebuild rebuild, Run current) {
+        UUID after = range.after();
+        while (current.state == NoteReindexState.RUNNING) {
+            final UUID from = after;
+            final List<NoteSummary> summaries = transactionTemplate.execute(status ->
+                    noteRepository.findSummariesInRange(from, range.last(), Limit.of(batchSize)));
+            if (summaries == null || summaries.isEmpty()) {
+                break;
+            }
+
+            final List<NoteDocument> documents = transactionTemplate.execute(status -> documentLoader.toDocuments(summaries));
+            rebuild.insert(documents);
+
+            current.indexedNotes.addAndGet(summaries.size());
+            if (summaries.size() < batchSize) {
+                break;
+            }
+            after = summaries.getLast().id();
+        }
+        current.completedPartitions.incrementAndGet();
+    }
+
+    // Note ids are random UUIDs: equal slices of the key space hold about the same number of notes.
+    // Ranges are (after, last]: the nil and max UUIDs used as bounds are never note ids
+    static List<KeyRange> keyRanges(int partitions) {
+        final long step = Long.divideUnsigned(-1L, partitions);
+        final List<KeyRange> ranges = new ArrayList<>(partitions);
+
+        UUID after = new UUID(0, 0);
+        for (int i = 1; i <= partitions; i++) {
+            final UUID last = i == partitions ? new UUID(-1L, -1L) : new UUID(step * i, 0);
+            ranges.add(new KeyRange(after, last));
+            after = last;
+        }
+        return ranges;
+    }
+
+    record KeyRange(UUID after, UUID last) {}
+
+    private static final class Run {
+
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final int partitions;
+        private final AtomicInteger completedPartitions = new AtomicInteger();
+        private final AtomicLong indexedNotes = new AtomicLong();
+        private volatile NoteReindexState state = NoteReindexState.RUNNING;
+        private volatile long totalNotes;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        private Run(int partitions) {
+            this.partitions = partitions;
+        }
+
+        private boolean isActive() {
+            return state == NoteReindexState.RUNNING || state == NoteReindexState.SWAPPING;
+        }
+
+        private void finish(NoteReindexState finalState, String failure) {
+            error = failure;
+            finishedAt = LocalDateTime.now();
+            state = finalState;
+        }
+
+        private NoteReindexStatus status() {
+            final long indexed = indexedNotes.get();
+            final LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+            final double elapsedSeconds = Math.max(Duration.between(startedAt, end).toMillis(), 1) / 1000.0;
+            final double notesPerSecond = indexed / elapsedSeconds;
+            final Long etaSeconds = isActive() && notesPerSecond > 0
+                    ? (long) Math.ceil(Math.max(totalNotes - indexed, 0) / notesPerSecond)
+                    : null;
+
+            return new NoteReindexStatus(state, startedAt, finishedAt, partitions, completedPartitions.get(),
+                    totalNotes, indexed, Math.round(notesPerSecond * 10) / 10.0, etaSeconds, error);
+        }
+
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.dipa.notefournote.indexing;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Present while a rebuild runs: meanwhile the indexer of any instance records the notes it syncs
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "note_reindex_runs")
+public class NoteReindexRunEntity {
+
+    @Id
+    private UUID id;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    public NoteReindexRunEntity(LocalDateTime startedAt) {
+        this.id = UUID.randomUUID();
+        this.startedAt = startedAt;
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.dipa.notefournote.indexing;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface NoteReindexRunRepository extends JpaRepository<NoteReindexRunEntity, UUID> {
+
+    @Query("select max(r.startedAt) from NoteReindexRunEntity r")
+    Optional<LocalDateTime> findStartedAt();
+
+    // Transaction-scoped probe of the session lock held by the instance running a rebuild
+    @Query(value = "select pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryLock(long key);
+
+}
@@ -0,0 +1,9 @@
+package com.dipa.notefournote.indexing;
+
+public enum NoteReindexState {
+    IDLE,
+    RUNNING,
+    SWAPPING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,31 @@
+package com.dipa.notefournote.indexing;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+// Progress of the search index rebuild: throughput and ETA are estimated from the notes indexed so far
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record NoteReindexStatus(
+        NoteReindexState state,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        Integer partitions,
+        Integer completedPartitions,
+        Long totalNotes,
+        Long indexedNotes,
+        Double notesPerSecond,
+        Long etaSeconds,
+        String error
+) {
+
+    public static NoteReindexStatus idle() {
+        return new NoteReindexStatus(NoteReindexState.IDLE, null, null, null, null, null, null, null, null, null);
+    }
+
+    // The progress of a rebuild is tracked by the instance running it
+    public static NoteReindexStatus runningElsewhere(LocalDateTime startedAt) {
+        return new NoteReindexStatus(NoteReindexState.RUNNING, startedAt, null, null, null, null, null, null, null, null);
+    }
+
+}
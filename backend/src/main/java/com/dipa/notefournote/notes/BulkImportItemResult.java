@@ -0,0 +1,18 @@
+package com.dipa.notefournote.notes;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.UUID;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkImportItemResult(int index, UUID id, String error) {
+
+    public static BulkImportItemResult imported(int index, UUID id) {
+        return new BulkImportItemResult(index, id, null);
+    }
+
+    public static BulkImportItemResult failed(int index, String error) {
+        return new BulkImportItemResult(index, null, error);
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.dipa.notefournote.notes;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+// Items are validated one by one by the service, so that an invalid note does not reject the whole import
+public record BulkImportRequest(
+        @NotEmpty(message = "La lista delle note da importare non può essere vuota.")
+        @Size(max = 5000, message = "Non è possibile importare più di 5000 note per richiesta.")
+        List<CreateNoteRequest> notes
+) {}
@@ -0,0 +1,5 @@
+package com.dipa.notefournote.notes;
+
+import java.util.List;
+
+public record BulkImportResponse(int imported, int failed, List<BulkImportItemResult> results) {}
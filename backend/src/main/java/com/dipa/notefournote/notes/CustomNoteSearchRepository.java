@@ -3,8 +3,29 @@ package com.dipa.notefournote.notes;
 import java.util.List;
 import java.util.Set;
 
+// Search index of the notes, selected by notes.search.engine (MongoDB by default, or an embedded Lucene index)
 public interface CustomNoteSearchRepository {
 
-    List<NoteDocument> searchNotes(String text, Set<String> tags, String username);
+    // Text searches are ranked by score, tag-only searches by recency: at most limit documents after the cursor (if any)
+    List<NoteDocument> searchNotes(String text, Set<String> tags, String username, NoteSearchCursor cursor, int limit, boolean includeContent);
 
-}
\ No newline at end of file
+    // Text search tolerating typos (within 1 or 2 edits per word, depending on its length), ranked by edit distance and field weight
+    List<NoteDocument> fuzzySearchNotes(String text, Set<String> tags, String username, NoteSearchCursor cursor, int limit, boolean includeContent);
+
+    // Tag counts over the notes matching the same criteria (text and tags are both optional), most frequent first
+    List<TagFacet> countTags(String text, Set<String> tags, String username, int limit);
+
+    // Returns the ids of the writes rejected by the index (the others are applied)
+    Set<String> bulkWrite(List<NoteIndexWrite> writes);
+
+    long count();
+
+    // Digests of the indexed notes whose id starts with prefix, grouped by the first length characters of their id
+    List<NoteKeyDigest> digestKeys(String prefix, int length);
+
+    // Versions of the indexed notes whose id starts with prefix
+    List<NoteKeyVersion> findKeyVersions(String prefix);
+
+    NoteIndexRebuild startRebuild();
+
+}
@@ -0,0 +1,10 @@
+package com.dipa.notefournote.notes;
+
+import java.util.Collection;
+import java.util.Set;
+
+public interface CustomTagRepository {
+
+    Set<TagEntity> findOrCreateAllByNameIn(Collection<String> names);
+
+}
@@ -0,0 +1,95 @@
+package com.dipa.notefournote.notes;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class CustomTagRepositoryImpl implements CustomTagRepository {
+
+    private final EntityManager entityManager;
+    private final TagDictionary tagDictionary;
+
+    // Keeps the number of bind parameters of a single insert well below the driver limit
+    private static final int INSERT_CHUNK_SIZE = 1000;
+
+    // Known tags are built from the dictionary without touching the database: notes only need their id
+    @Override
+    @Transactional
+    public Set<TagEntity> findOrCreateAllByNameIn(Collection<String> names) {
+        final Set<TagEntity> tags = new HashSet<>();
+        final Set<String> unknownNames = new HashSet<>();
+        for (String name : names) {
+            final Integer id = tagDictionary.idOf(name);
+            if (id != null) {
+                tags.add(new TagEntity(id, name));
+            } else {
+                unknownNames.add(name);
+            }
+        }
+        if (unknownNames.isEmpty()) {
+            return tags;
+        }
+
+        final List<TagEntity> resolvedTags = new ArrayList<>(findAllByNameIn(unknownNames));
+        final Set<String> foundNames = resolvedTags.stream()
+                .map(TagEntity::getName)
+                .collect(Collectors.toSet());
+
+        // Sorted so that concurrent writers lock the unique index entries in the same order
+        final List<String> missingNames = unknownNames.stream()
+                .filter(name -> !foundNames.contains(name))
+                .sorted()
+                .toList();
+
+        // Tags inserted meanwhile by a concurrent writer are skipped by the upsert and read back below
+        final Set<String> conflictingNames = new HashSet<>(missingNames);
+        for (int from = 0; from < missingNames.size(); from += INSERT_CHUNK_SIZE) {
+            final List<TagEntity> insertedTags = insertIgnoringConflicts(missingNames.subList(from, Math.min(from + INSERT_CHUNK_SIZE, missingNames.size())));
+            insertedTags.forEach(tag -> conflictingNames.remove(tag.getName()));
+            resolvedTags.addAll(insertedTags);
+            log.debug("Inserted {} new tags", insertedTags.size());
+        }
+        if (!conflictingNames.isEmpty()) {
+            resolvedTags.addAll(findAllByNameIn(conflictingNames));
+        }
+
+        tagDictionary.registerAfterCommit(resolvedTags);
+        tags.addAll(resolvedTags);
+        return tags;
+    }
+
+    private List<TagEntity> findAllByNameIn(Collection<String> names) {
+        return entityManager.createQuery("select t from TagEntity t where t.name in :names", TagEntity.class)
+                .setParameter("names", names)
+                .getResultList();
+    }
+
+    private List<TagEntity> insertIgnoringConflicts(List<String> names) {
+        final StringJoiner values = new StringJoiner(", ");
+        for (int i = 1; i <= names.size(); i++) {
+            values.add("(?" + i + ")");
+        }
+
+        final Query insert = entityManager.createNativeQuery(
+                "insert into tags (name) values " + values + " on conflict (name) do nothing returning id, name");
+        for (int i = 0; i < names.size(); i++) {
+            insert.setParameter(i + 1, names.get(i));
+        }
+
+        @SuppressWarnings("unchecked")
+        final List<Object[]> rows = insert.getResultList();
+        return rows.stream()
+                .map(row -> new TagEntity(((Number) row[0]).intValue(), (String) row[1]))
+                .toList();
+    }
+
+}
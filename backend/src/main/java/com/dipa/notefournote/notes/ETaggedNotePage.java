@@ -0,0 +1,4 @@
+package com.dipa.notefournote.notes;
+
+// A page of notes with the entity tag of that very page (both cached together)
+public record ETaggedNotePage(NotePageResponse page, String eTag) {}
@@ -0,0 +1,132 @@
+package com.dipa.notefournote.notes;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Terms of the fuzzy search: tokenization, allowed edits and bounded edit distance (adjacent transpositions count as one edit).
+ */
+final class FuzzyTerms {
+
+    // Shorter words are only matched exactly, longer ones are not indexed in the vocabulary
+    static final int MIN_LENGTH = 3;
+    static final int MAX_LENGTH = 30;
+    // Query words expanded at most: fuzzy expansion cannot blow up the query cost
+    static final int MAX_QUERY_TERMS = 8;
+
+    private FuzzyTerms() {
+    }
+
+    static Set<String> tokenize(String text) {
+        final Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String term : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!term.isEmpty() && term.length() <= MAX_LENGTH) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    // One typo up to 5 characters, two from 6 on
+    static int maxEdits(String term) {
+        if (term.length() < MIN_LENGTH) {
+            return 0;
+        }
+        return term.length() <= 5 ? 1 : 2;
+    }
+
+    // Trigrams of the term padded at both ends: one edit changes at most 4 of them (3 for a substitution,
+    // 4 for a transposition, e.g. "latte" and "ltate" only share "te$")
+    static List<String> trigrams(String term) {
+        final String padded = "^" + term + "$";
+        final List<String> grams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    // Trigrams of a word that any term within maxEdits still shares (at least one, to use the grams index)
+    static int minOverlap(List<String> grams, int maxEdits) {
+        return Math.max(1, grams.size() - 4 * maxEdits);
+    }
+
+    // Trigrams of a word looked up in the vocabulary, rarest first. A term sharing minOverlap of the distinct trigrams
+    // contains one of any (distinct - minOverlap + 1) of them, so no more are needed; fewer are taken when their terms
+    // would exceed the budget, leaving out the terms that only share common trigrams (the least similar ones)
+    static List<String> rarestGrams(List<String> grams, int minOverlap, ToLongFunction<String> frequency, long budget) {
+        final Map<String, Long> frequencies = new LinkedHashMap<>();
+        new LinkedHashSet<>(grams).forEach(gram -> frequencies.put(gram, frequency.applyAsLong(gram)));
+        final int needed = Math.max(1, frequencies.size() - minOverlap + 1);
+
+        final List<String> selected = new ArrayList<>(needed);
+        long terms = 0;
+        for (Map.Entry<String, Long> gram : frequencies.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .toList()) {
+            if (selected.size() == needed || !selected.isEmpty() && terms + gram.getValue() > budget) {
+                break;
+            }
+            selected.add(gram.getKey());
+            terms += gram.getValue();
+        }
+        return selected;
+    }
+
+    // Lengths of the terms within maxEdits of a word, its own first and then outwards
+    static List<Integer> lengthsByDistance(int length, int maxEdits) {
+        final List<Integer> lengths = new ArrayList<>(2 * maxEdits + 1);
+        for (int edits = 0; edits <= maxEdits; edits++) {
+            for (int candidate : edits == 0 ? List.of(length) : List.of(length - edits, length + edits)) {
+                if (candidate >= MIN_LENGTH && candidate <= MAX_LENGTH) {
+                    lengths.add(candidate);
+                }
+            }
+        }
+        return lengths;
+    }
+
+    // Optimal string alignment distance, or max + 1 as soon as it exceeds max
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                final int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], previous2[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            final int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+}
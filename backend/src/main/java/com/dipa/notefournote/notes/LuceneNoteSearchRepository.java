@@ -0,0 +1,616 @@
+package com.dipa.notefournote.notes;
+
+import com.dipa.notefournote.exception.InvalidSearchCriteriaException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Embedded search index: an on-disk Lucene index in the application process, read through memory-mapped segments.
+ * Same semantics as the MongoDB index (text over title and content, all the tags, readers), without a network hop.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "notes.search.engine", havingValue = "lucene")
+public class LuceneNoteSearchRepository implements CustomNoteSearchRepository {
+
+    private static final String ID = "id";
+    private static final String CREATED_AT = "createdAt";
+    // Doc values of the tags, read by the facet counts
+    private static final String TAG_FACETS = "tagFacets";
+    // Share count compared by the reconciler
+    private static final String SHARES = "shares";
+    // Vocabulary terms a fuzzy query term expands to at most (the closest ones)
+    private static final int FUZZY_EXPANSIONS = 10;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private static final Sort RELEVANCE = new Sort(SortField.FIELD_SCORE, new SortField(ID, SortField.Type.STRING));
+    private static final Sort RECENCY = new Sort(
+            new SortedNumericSortField(NoteDocument.UPDATED_AT, SortField.Type.LONG, true),
+            new SortField(ID, SortField.Type.STRING, true));
+    private static final Set<String> FIELDS_WITHOUT_CONTENT = Set.of(ID, NoteDocument.TITLE, NoteDocument.TAGS, NoteDocument.OWNER_USERNAME,
+            NoteDocument.SHARED_WITH_USERNAMES, NoteDocument.READERS, CREATED_AT, NoteDocument.UPDATED_AT);
+
+    private final Path path;
+    private final DataSize ramBuffer;
+    private final Analyzer analyzer = new EnglishAnalyzer();
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    // Writes are committed and made visible to the searches as a whole batch (or a whole rebuild)
+    private final Object writeLock = new Object();
+
+    public LuceneNoteSearchRepository(@Value("${notes.search.lucene.path:./data/notes-index}") String path,
+                                      @Value("${notes.search.lucene.ram-buffer:32MB}") DataSize ramBuffer) throws IOException {
+        this.path = Path.of(path).toAbsolutePath();
+        this.ramBuffer = ramBuffer;
+        this.directory = new MMapDirectory(Files.createDirectories(this.path));
+        this.writer = new IndexWriter(directory, writerConfig(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(writer, null);
+        log.info("Search index opened at {} ({} notes)", this.path, count());
+    }
+
+    @Override
+    public List<NoteDocument> searchNotes(String text, Set<String> tags, String username, NoteSearchCursor cursor, int limit, boolean includeContent) {
+        return search(text, tags, username, cursor, limit, includeContent, false);
+    }
+
+    // Levenshtein automata over the terms of the index: Lucene scores each expansion by its similarity to the query term
+    @Override
+    public List<NoteDocument> fuzzySearchNotes(String text, Set<String> tags, String username, NoteSearchCursor cursor, int limit, boolean includeContent) {
+        if (!StringUtils.hasText(text)) {
+            throw new InvalidSearchCriteriaException("A fuzzy search requires a search text.");
+        }
+        return search(text, tags, username, cursor, limit, includeContent, true);
+    }
+
+    private List<NoteDocument> search(String text, Set<String> tags, String username, NoteSearchCursor cursor, int limit, boolean includeContent,
+                                      boolean fuzzy) {
+
+        final boolean isTextPresent = StringUtils.hasText(text);
+        final boolean areTagsPresent = tags != null && !tags.isEmpty();
+
+        if (!isTextPresent && !areTagsPresent) {
+            throw new InvalidSearchCriteriaException("At least one search criterion (text or tags) must be provided.");
+        }
+
+        final IndexSearcher searcher = acquireSearcher();
+        try {
+            final Query query = buildQuery(text, tags, username, fuzzy);
+            if (query == null) {
+                return List.of();
+            }
+
+            final List<ScoreDoc> hits;
+            if (isTextPresent) {
+                // Ranked by relevance (id breaks ties), the next page is reached by offset
+                final int offset = cursor != null ? cursor.offset() : 0;
+                final ScoreDoc[] top = searcher.search(query, offset + limit, RELEVANCE, true).scoreDocs;
+                hits = Arrays.asList(top).subList(Math.min(offset, top.length), top.length);
+            } else {
+                // Most recently updated first, the next page is reached by keyset on (updatedAt, id).
+                // Ties on the sort values go by doc id: the last one also skips the cursor note itself
+                final FieldDoc after = cursor == null ? null : new FieldDoc(searcher.getIndexReader().maxDoc() - 1, Float.NaN,
+                        new Object[]{toNanos(cursor.updatedAt()), new BytesRef(cursor.id())});
+                hits = Arrays.asList(searcher.searchAfter(after, query, limit, RECENCY).scoreDocs);
+            }
+
+            final StoredFields storedFields = searcher.storedFields();
+            final List<NoteDocument> documents = new ArrayList<>(hits.size());
+            for (ScoreDoc hit : hits) {
+                documents.add(toNoteDocument(includeContent
+                        ? storedFields.document(hit.doc)
+                        : storedFields.document(hit.doc, FIELDS_WITHOUT_CONTENT)));
+            }
+            return documents;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            releaseSearcher(searcher);
+        }
+    }
+
+    // Counted on the doc values of the matching notes: stored fields (and contents) are never read
+    @Override
+    public List<TagFacet> countTags(String text, Set<String> tags, String username, int limit) {
+        final IndexSearcher searcher = acquireSearcher();
+        try {
+            final Query query = buildQuery(text, tags, username, false);
+            if (query == null) {
+                return List.of();
+            }
+
+            final Map<String, Long> counts = searcher.search(query, new CollectorManager<TagCounter, Map<String, Long>>() {
+                @Override
+                public TagCounter newCollector() {
+                    return new TagCounter();
+                }
+
+                @Override
+                public Map<String, Long> reduce(Collection<TagCounter> collectors) throws IOException {
+                    final Map<String, Long> total = new HashMap<>();
+                    for (TagCounter collector : collectors) {
+                        collector.countsByTag().forEach((tag, count) -> total.merge(tag, count, Long::sum));
+                    }
+                    return total;
+                }
+            });
+
+            return counts.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limit)
+                    .map(entry -> new TagFacet(entry.getKey(), entry.getValue()))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            releaseSearcher(searcher);
+        }
+    }
+
+    @Override
+    public Set<String> bulkWrite(List<NoteIndexWrite> writes) {
+        if (writes.isEmpty()) {
+            return Set.of();
+        }
+
+        final Set<String> failedIds = new HashSet<>();
+        synchronized (writeLock) {
+            for (NoteIndexWrite write : writes) {
+                final Term byId = new Term(ID, write.id());
+                try {
+                    if (write.document() != null) {
+                        writer.updateDocument(byId, toLuceneDocument(write.document()));
+                    } else if (write.fields() != null) {
+                        updateFields(byId, write.fields());
+                    } else {
+                        writer.deleteDocuments(byId);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Index write of note '{}' rejected", write.id(), e);
+                    failedIds.add(write.id());
+                }
+            }
+
+            // Durable before the outbox events are removed, then visible to the next searches
+            try {
+                writer.commit();
+                searcherManager.maybeRefreshBlocking();
+            } catch (IOException e) {
+                log.warn("Failed to commit {} index writes", writes.size(), e);
+                return writes.stream().map(NoteIndexWrite::id).collect(Collectors.toSet());
+            }
+        }
+        return failedIds;
+    }
+
+    @Override
+    public long count() {
+        final IndexSearcher searcher = acquireSearcher();
+        try {
+            return searcher.getIndexReader().numDocs();
+        } finally {
+            releaseSearcher(searcher);
+        }
+    }
+
+    // The documents are loaded into a shadow index next to the live one, whose content is then replaced in a single commit
+    @Override
+    public NoteIndexRebuild startRebuild() {
+        final Path shadowPath = path.resolveSibling(path.getFileName() + "-rebuild");
+        try {
+            FileSystemUtils.deleteRecursively(shadowPath);
+            return new ShadowIndex(shadowPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        IOUtils.close(searcherManager, writer, directory, analyzer);
+    }
+
+    // Partial update of a stored document (an update of a missing note matches nothing, like on MongoDB)
+    private void updateFields(Term byId, Map<String, Object> fields) throws IOException {
+        final NoteDocument document = findById(byId);
+        if (document == null) {
+            return;
+        }
+        fields.forEach((field, value) -> setField(document, field, value));
+        writer.updateDocument(byId, toLuceneDocument(document));
+    }
+
+    private NoteDocument findById(Term byId) throws IOException {
+        final IndexSearcher searcher = acquireSearcher();
+        try {
+            final TopDocs top = searcher.search(new TermQuery(byId), 1);
+            return top.scoreDocs.length == 0 ? null : toNoteDocument(searcher.storedFields().document(top.scoreDocs[0].doc));
+        } finally {
+            releaseSearcher(searcher);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void setField(NoteDocument document, String field, Object value) {
+        switch (field) {
+            case NoteDocument.TITLE -> document.setTitle((String) value);
+            case NoteDocument.CONTENT -> document.setContent((String) value);
+            case NoteDocument.TAGS -> document.setTags(List.copyOf((Collection<String>) value));
+            case NoteDocument.SHARED_WITH_USERNAMES -> document.setSharedWithUsernames(List.copyOf((Collection<String>) value));
+            case NoteDocument.READERS -> document.setReaders(List.copyOf((Collection<String>) value));
+            case NoteDocument.UPDATED_AT -> document.setUpdatedAt((LocalDateTime) value);
+            default -> throw new IllegalArgumentException("Unknown index field: " + field);
+        }
+    }
+
+    // Read from the doc values of the id and update time alone
+    @Override
+    public List<NoteKeyDigest> digestKeys(String prefix, int length) {
+        final Map<String, long[]> digests = new HashMap<>();
+        collectKeys(prefix, version -> {
+            final String id = version.id().toString();
+            final long[] digest = digests.computeIfAbsent(id.substring(0, Math.min(length, id.length())), ignored -> new long[4]);
+            digest[0]++;
+            digest[1] += NoteKeyDigest.checksumOf(version.updatedAt());
+            digest[2] += version.shares();
+            digest[3] += version.tags();
+        });
+        return digests.entrySet().stream()
+                .map(entry -> new NoteKeyDigest(entry.getKey(), entry.getValue()[0], entry.getValue()[1], entry.getValue()[2], entry.getValue()[3]))
+                .toList();
+    }
+
+    @Override
+    public List<NoteKeyVersion> findKeyVersions(String prefix) {
+        final List<NoteKeyVersion> versions = new ArrayList<>();
+        collectKeys(prefix, versions::add);
+        return versions;
+    }
+
+    // Doc values only: the stored fields of the notes are never read
+    private void collectKeys(String prefix, Consumer<NoteKeyVersion> consumer) {
+        final IndexSearcher searcher = acquireSearcher();
+        try {
+            final IndexReader reader = searcher.getIndexReader();
+            final Weight weight = searcher.createWeight(searcher.rewrite(new PrefixQuery(new Term(ID, prefix))), ScoreMode.COMPLETE_NO_SCORES, 1f);
+            for (LeafReaderContext leaf : reader.leaves()) {
+                final Scorer scorer = weight.scorer(leaf);
+                if (scorer == null) {
+                    continue;
+                }
+                final SortedDocValues ids = DocValues.getSorted(leaf.reader(), ID);
+                final SortedNumericDocValues updatedAts = DocValues.getSortedNumeric(leaf.reader(), NoteDocument.UPDATED_AT);
+                final NumericDocValues shares = DocValues.getNumeric(leaf.reader(), SHARES);
+                final SortedSetDocValues tags = DocValues.getSortedSet(leaf.reader(), TAG_FACETS);
+                final Bits liveDocs = leaf.reader().getLiveDocs();
+                final DocIdSetIterator docs = scorer.iterator();
+                for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc()) {
+                    if ((liveDocs == null || liveDocs.get(doc)) && ids.advanceExact(doc) && updatedAts.advanceExact(doc)) {
+                        consumer.accept(new NoteKeyVersion(UUID.fromString(ids.lookupOrd(ids.ordValue()).utf8ToString()), fromNanos(updatedAts.nextValue()),
+                                shares.advanceExact(doc) ? shares.longValue() : 0,
+                                tags.advanceExact(doc) ? tags.docValueCount() : 0));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            releaseSearcher(searcher);
+        }
+    }
+
+    // Readers and tags only filter: the score comes from the text alone (null when the text has only stop words)
+    private Query buildQuery(String text, Set<String> tags, String username, boolean fuzzy) throws IOException {
+        final BooleanQuery.Builder query = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(NoteDocument.READERS, username)), BooleanClause.Occur.FILTER);
+        if (tags != null) {
+            tags.forEach(tag -> query.add(new TermQuery(new Term(NoteDocument.TAGS, tag)), BooleanClause.Occur.FILTER));
+        }
+        if (StringUtils.hasText(text)) {
+            final Query textQuery = fuzzy ? fuzzyTextQuery(text) : textQuery(text);
+            if (textQuery == null) {
+                return null;
+            }
+            query.add(textQuery, BooleanClause.Occur.MUST);
+        }
+        return query.build();
+    }
+
+    // Any of the analyzed terms, in the title (weighted) or in the content, like a MongoDB $text search
+    private Query textQuery(String text) throws IOException {
+        final Set<String> terms = analyze(text);
+        if (terms.isEmpty()) {
+            return null;
+        }
+
+        final BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (String term : terms) {
+            query.add(new BoostQuery(new TermQuery(new Term(NoteDocument.TITLE, term)), NoteDocument.TITLE_WEIGHT), BooleanClause.Occur.SHOULD);
+            query.add(new TermQuery(new Term(NoteDocument.CONTENT, term)), BooleanClause.Occur.SHOULD);
+        }
+        return query.build();
+    }
+
+    // Same clauses within the allowed edits of each term, plus the tags within the edits of each word
+    private Query fuzzyTextQuery(String text) throws IOException {
+        final Set<String> terms = analyze(text);
+        if (terms.isEmpty()) {
+            return null;
+        }
+
+        final BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (String term : terms.stream().limit(FuzzyTerms.MAX_QUERY_TERMS).toList()) {
+            query.add(new BoostQuery(fuzzyQuery(NoteDocument.TITLE, term), NoteDocument.TITLE_WEIGHT), BooleanClause.Occur.SHOULD);
+            query.add(fuzzyQuery(NoteDocument.CONTENT, term), BooleanClause.Occur.SHOULD);
+        }
+        // Tags are indexed whole and uppercase, as the search requests send them
+        for (String word : FuzzyTerms.tokenize(text).stream().limit(FuzzyTerms.MAX_QUERY_TERMS).toList()) {
+            query.add(fuzzyQuery(NoteDocument.TAGS, word.toUpperCase()), BooleanClause.Occur.SHOULD);
+        }
+        return query.build();
+    }
+
+    private static Query fuzzyQuery(String field, String term) {
+        final int maxEdits = FuzzyTerms.maxEdits(term);
+        return maxEdits == 0
+                ? new TermQuery(new Term(field, term))
+                : new FuzzyQuery(new Term(field, term), maxEdits, 0, FUZZY_EXPANSIONS, true);
+    }
+
+    private Set<String> analyze(String text) throws IOException {
+        final Set<String> terms = new LinkedHashSet<>();
+        try (TokenStream tokens = analyzer.tokenStream(NoteDocument.CONTENT, text)) {
+            final CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                terms.add(term.toString());
+            }
+            tokens.end();
+        }
+        return terms;
+    }
+
+    private static Document toLuceneDocument(NoteDocument note) {
+        final Document document = new Document();
+        document.add(new StringField(ID, note.getId(), Field.Store.YES));
+        document.add(new SortedDocValuesField(ID, new BytesRef(note.getId())));
+        document.add(new TextField(NoteDocument.TITLE, note.getTitle(), Field.Store.YES));
+        if (note.getContent() != null) {
+            document.add(new TextField(NoteDocument.CONTENT, note.getContent(), Field.Store.YES));
+        }
+        listOrEmpty(note.getTags()).forEach(tag -> {
+            document.add(new StringField(NoteDocument.TAGS, tag, Field.Store.YES));
+            document.add(new SortedSetDocValuesField(TAG_FACETS, new BytesRef(tag)));
+        });
+        document.add(new StoredField(NoteDocument.OWNER_USERNAME, note.getOwnerUsername()));
+        listOrEmpty(note.getSharedWithUsernames()).forEach(username -> document.add(new StoredField(NoteDocument.SHARED_WITH_USERNAMES, username)));
+        document.add(new NumericDocValuesField(SHARES, listOrEmpty(note.getSharedWithUsernames()).size()));
+        listOrEmpty(note.getReaders()).forEach(username -> document.add(new StringField(NoteDocument.READERS, username, Field.Store.YES)));
+        document.add(new StoredField(CREATED_AT, toNanos(note.getCreatedAt())));
+        document.add(new LongField(NoteDocument.UPDATED_AT, toNanos(note.getUpdatedAt()), Field.Store.YES));
+        return document;
+    }
+
+    private static NoteDocument toNoteDocument(Document document) {
+        final NoteDocument note = new NoteDocument();
+        note.setId(document.get(ID));
+        note.setTitle(document.get(NoteDocument.TITLE));
+        note.setContent(document.get(NoteDocument.CONTENT));
+        note.setTags(List.of(document.getValues(NoteDocument.TAGS)));
+        note.setOwnerUsername(document.get(NoteDocument.OWNER_USERNAME));
+        note.setSharedWithUsernames(List.of(document.getValues(NoteDocument.SHARED_WITH_USERNAMES)));
+        note.setReaders(List.of(document.getValues(NoteDocument.READERS)));
+        note.setCreatedAt(fromNanos(document.getField(CREATED_AT).numericValue().longValue()));
+        note.setUpdatedAt(fromNanos(document.getField(NoteDocument.UPDATED_AT).numericValue().longValue()));
+        return note;
+    }
+
+    private static List<String> listOrEmpty(List<String> values) {
+        return values != null ? values : List.of();
+    }
+
+    private static long toNanos(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + time.getNano();
+    }
+
+    private static LocalDateTime fromNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND), (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+
+    // Bounded heap: updates are buffered up to ram-buffer, then flushed to a segment read through mmap (off-heap)
+    private IndexWriterConfig writerConfig(IndexWriterConfig.OpenMode openMode) {
+        return new IndexWriterConfig(analyzer)
+                .setOpenMode(openMode)
+                .setRAMBufferSizeMB(ramBuffer.toBytes() / (1024.0 * 1024.0));
+    }
+
+    private IndexSearcher acquireSearcher() {
+        try {
+            return searcherManager.acquire();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void releaseSearcher(IndexSearcher searcher) {
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException e) {
+            log.warn("Failed to release an index searcher", e);
+        }
+    }
+
+    // Counts per segment ordinal, resolved to tag names once per segment
+    private static final class TagCounter extends SimpleCollector {
+
+        private final Map<String, Long> countsByTag = new HashMap<>();
+        private SortedSetDocValues values;
+        private long[] counts;
+
+        @Override
+        protected void doSetNextReader(LeafReaderContext context) throws IOException {
+            flush();
+            values = DocValues.getSortedSet(context.reader(), TAG_FACETS);
+            counts = new long[(int) values.getValueCount()];
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            if (values.advanceExact(doc)) {
+                for (int i = 0; i < values.docValueCount(); i++) {
+                    counts[(int) values.nextOrd()]++;
+                }
+            }
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+
+        private Map<String, Long> countsByTag() throws IOException {
+            flush();
+            return countsByTag;
+        }
+
+        private void flush() throws IOException {
+            if (counts == null) {
+                return;
+            }
+            for (int ord = 0; ord < counts.length; ord++) {
+                if (counts[ord] > 0) {
+                    countsByTag.merge(values.lookupOrd(ord).utf8ToString(), counts[ord], Long::sum);
+                }
+            }
+            counts = null;
+        }
+
+    }
+
+    private final class ShadowIndex implements NoteIndexRebuild {
+
+        private final Path shadowPath;
+        private final Directory shadowDirectory;
+        private final IndexWriter shadowWriter;
+
+        private ShadowIndex(Path shadowPath) throws IOException {
+            this.shadowPath = shadowPath;
+            this.shadowDirectory = new MMapDirectory(Files.createDirectories(shadowPath));
+            this.shadowWriter = new IndexWriter(shadowDirectory, writerConfig(IndexWriterConfig.OpenMode.CREATE));
+        }
+
+        @Override
+        public void insert(List<NoteDocument> documents) {
+            try {
+                shadowWriter.addDocuments(documents.stream().map(LuceneNoteSearchRepository::toLuceneDocument).toList());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void publish() {
+            try {
+                shadowWriter.close();
+                // Searches keep reading the previous content until the commit is refreshed
+                synchronized (writeLock) {
+                    writer.deleteAll();
+                    writer.addIndexes(shadowDirectory);
+                    writer.commit();
+                    searcherManager.maybeRefreshBlocking();
+                }
+                shadowDirectory.close();
+                FileSystemUtils.deleteRecursively(shadowPath);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void discard() {
+            IOUtils.closeWhileHandlingException(shadowWriter, shadowDirectory);
+            try {
+                FileSystemUtils.deleteRecursively(shadowPath);
+            } catch (IOException e) {
+                log.warn("Failed to delete the shadow search index at {}", shadowPath, e);
+            }
+        }
+
+    }
+
+}
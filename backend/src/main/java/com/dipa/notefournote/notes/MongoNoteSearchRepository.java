@@ -0,0 +1,497 @@
+package com.dipa.notefournote.notes;
+
+import com.dipa.notefournote.exception.InvalidSearchCriteriaException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.RenameCollectionOptions;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "notes.search.engine", havingValue = "mongodb", matchIfMissing = true)
+public class MongoNoteSearchRepository implements CustomNoteSearchRepository {
+
+    static final String SHADOW_COLLECTION = "notes_index_rebuild";
+    // Bounds of the fuzzy search: vocabulary terms scanned and compared per query word, closest ones kept,
+    // notes re-ranked from each of the text and the tag matches
+    static final int FUZZY_SCANNED_TERMS = 2000;
+    static final int FUZZY_CANDIDATES = 64;
+    static final int FUZZY_EXPANSIONS = 10;
+    static final int FUZZY_MAX_MATCHES = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<NoteDocument> searchNotes(String text, Set<String> tags, String username, NoteSearchCursor cursor, int limit, boolean includeContent) {
+        final Query query = buildSearchQuery(text, tags, username, cursor, limit, includeContent);
+        log.debug("Search query: {}", query);
+
+        return mongoTemplate.find(query, NoteDocument.class);
+    }
+
+    // Query shapes served by the indexes declared on NoteDocument (checked by NoteSearchQueryPlanTests)
+    static Query buildSearchQuery(String text, Set<String> tags, String username, NoteSearchCursor cursor, int limit, boolean includeContent) {
+
+        final boolean isTextPresent = StringUtils.hasText(text);
+        final boolean areTagsPresent = tags != null && !tags.isEmpty();
+
+        if (!isTextPresent && !areTagsPresent) {
+            throw new InvalidSearchCriteriaException("At least one search criterion (text or tags) must be provided.");
+        }
+
+        // Owner and sharers are all in the readers field: access is a single equality on a multikey index
+        final List<Criteria> criteria = new ArrayList<>();
+        criteria.add(Criteria.where(NoteDocument.READERS).is(username));
+
+        if (areTagsPresent) {
+            criteria.add(Criteria.where(NoteDocument.TAGS).all(tags));
+        }
+
+        final Query query;
+        if (isTextPresent) {
+            // Ranked by relevance (id breaks ties), the next page is reached by offset
+            query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text))
+                    .sortByScore()
+                    .with(Sort.by(Sort.Direction.ASC, "id"));
+            if (cursor != null) {
+                query.skip(cursor.offset());
+            }
+        } else {
+            // Most recently updated first, the next page is reached by keyset on (updatedAt, id)
+            query = new Query().with(Sort.by(Sort.Direction.DESC, NoteDocument.UPDATED_AT, "id"));
+            if (cursor != null) {
+                criteria.add(new Criteria().orOperator(
+                        Criteria.where(NoteDocument.UPDATED_AT).lt(cursor.updatedAt()),
+                        Criteria.where(NoteDocument.UPDATED_AT).is(cursor.updatedAt()).and("_id").lt(cursor.id())
+                ));
+            }
+        }
+        query.addCriteria(new Criteria().andOperator(criteria)).limit(limit);
+        if (!includeContent) {
+            query.fields().exclude(NoteDocument.CONTENT);
+        }
+        return query;
+    }
+
+    // MongoDB has no fuzzy text operator: each query word is expanded to the closest words of the vocabulary, the best
+    // notes containing any of them are fetched (the top FUZZY_MAX_MATCHES by text score, and the most recent as many
+    // by tag, both ranked and limited by the server) and re-ranked here by the similarity of the words they contain
+    @Override
+    public List<NoteDocument> fuzzySearchNotes(String text, Set<String> tags, String username, NoteSearchCursor cursor, int limit, boolean includeContent) {
+        if (!StringUtils.hasText(text)) {
+            throw new InvalidSearchCriteriaException("A fuzzy search requires a search text.");
+        }
+
+        final Map<String, Map<String, Integer>> expansions = expand(text);
+        if (expansions.isEmpty()) {
+            return List.of();
+        }
+        final Query textQuery = buildFuzzyTextQuery(expansions, tags, username);
+        final Query tagQuery = buildFuzzyTagQuery(expansions, tags, username);
+        log.debug("Fuzzy search queries: {}, {}", textQuery, tagQuery);
+
+        final Map<String, NoteDocument> matches = new LinkedHashMap<>();
+        Stream.concat(mongoTemplate.find(textQuery, NoteDocument.class).stream(), mongoTemplate.find(tagQuery, NoteDocument.class).stream())
+                .forEach(document -> matches.putIfAbsent(document.getId(), document));
+
+        final int offset = cursor != null ? cursor.offset() : 0;
+        return matches.values().stream()
+                .map(document -> Map.entry(document, fuzzyScore(document, expansions)))
+                .sorted(Map.Entry.<NoteDocument, Double>comparingByValue().reversed()
+                        .thenComparing(entry -> entry.getKey().getId()))
+                .skip(offset)
+                .limit(limit)
+                .map(entry -> {
+                    if (!includeContent) {
+                        entry.getKey().setContent(null);
+                    }
+                    return entry.getKey();
+                })
+                .toList();
+    }
+
+    // Query word -> vocabulary terms within its allowed edits (the word itself included) and their distance
+    private Map<String, Map<String, Integer>> expand(String text) {
+        final Map<String, Map<String, Integer>> expansions = new LinkedHashMap<>();
+        for (String word : FuzzyTerms.tokenize(text).stream().limit(FuzzyTerms.MAX_QUERY_TERMS).toList()) {
+            final Map<String, Integer> terms = new LinkedHashMap<>();
+            terms.put(word, 0);
+
+            final int maxEdits = FuzzyTerms.maxEdits(word);
+            if (maxEdits > 0) {
+                findCandidates(word, maxEdits).stream()
+                        .map(candidate -> Map.entry(candidate, FuzzyTerms.distance(word, candidate, maxEdits)))
+                        .filter(candidate -> candidate.getValue() <= maxEdits && !candidate.getKey().equals(word))
+                        .sorted(Map.Entry.<String, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                        .limit(FUZZY_EXPANSIONS)
+                        .forEach(candidate -> terms.put(candidate.getKey(), candidate.getValue()));
+            }
+            expansions.put(word, terms);
+        }
+        return expansions;
+    }
+
+    // Served by the grams index: a term within maxEdits shares all but 4 * maxEdits of the word trigrams, the rarest
+    // trigrams are looked up first (bounded counts on the index tell which, see FuzzyTerms.rarestGrams). Lengths are
+    // scanned from the word's own outwards, each scan ranked on the server: the FUZZY_SCANNED_TERMS cap, if still
+    // reached, drops the terms of the farthest lengths
+    private List<String> findCandidates(String word, int maxEdits) {
+        final List<String> grams = FuzzyTerms.trigrams(word);
+        final int minOverlap = FuzzyTerms.minOverlap(grams, maxEdits);
+        final int minLength = word.length() - maxEdits;
+        final int maxLength = word.length() + maxEdits;
+        final List<String> rareGrams = FuzzyTerms.rarestGrams(grams, minOverlap, gram -> mongoTemplate.count(
+                Query.query(Criteria.where(NoteTermDocument.GRAMS).is(gram).and(NoteTermDocument.LENGTH).gte(minLength).lte(maxLength))
+                        .limit(FUZZY_SCANNED_TERMS),
+                NoteTermDocument.class), FUZZY_SCANNED_TERMS);
+
+        final List<Document> candidates = new ArrayList<>();
+        int budget = FUZZY_SCANNED_TERMS;
+        for (int length : FuzzyTerms.lengthsByDistance(word.length(), maxEdits)) {
+            if (budget <= 0 || candidates.size() >= FUZZY_CANDIDATES) {
+                break;
+            }
+            final Document scan = scanTerms(rareGrams, grams, minOverlap, length, budget);
+            final List<Document> scanned = scan.getList("scanned", Document.class);
+            budget -= scanned.isEmpty() ? 0 : ((Number) scanned.getFirst().get("terms")).intValue();
+            candidates.addAll(scan.getList("candidates", Document.class));
+        }
+
+        return candidates.stream()
+                .sorted(Comparator.<Document>comparingInt(candidate -> ((Number) candidate.get("overlap")).intValue()).reversed()
+                        .thenComparing(candidate -> candidate.getString("_id")))
+                .limit(FUZZY_CANDIDATES)
+                .map(candidate -> candidate.getString("_id"))
+                .toList();
+    }
+
+    // Terms of a single length containing any of the rare trigrams: the count of the terms read and the best ones by overlap
+    private Document scanTerms(List<String> rareGrams, List<String> grams, int minOverlap, int length, int budget) {
+        final Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where(NoteTermDocument.GRAMS).in(rareGrams).and(NoteTermDocument.LENGTH).is(length)),
+                Aggregation.limit(budget),
+                context -> new Document("$project", new Document("overlap",
+                        new Document("$size", new Document("$setIntersection", List.of("$" + NoteTermDocument.GRAMS, grams))))),
+                context -> new Document("$facet", new Document()
+                        .append("scanned", List.of(new Document("$count", "terms")))
+                        .append("candidates", List.of(
+                                new Document("$match", new Document("overlap", new Document("$gte", minOverlap))),
+                                new Document("$sort", new Document("overlap", -1).append("_id", 1)),
+                                new Document("$limit", FUZZY_CANDIDATES)))));
+
+        final Document result = mongoTemplate.aggregate(aggregation, NoteTermDocument.class, Document.class).getUniqueMappedResult();
+        return result != null ? result : new Document("scanned", List.of()).append("candidates", List.of());
+    }
+
+    // Notes with any expanded term in their title or content, best text score first (served by the text index)
+    static Query buildFuzzyTextQuery(Map<String, Map<String, Integer>> expansions, Set<String> tags, String username) {
+        final Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(String.join(" ", expandedTerms(expansions))))
+                .sortByScore()
+                .with(Sort.by(Sort.Direction.ASC, "id"));
+        return query.addCriteria(new Criteria().andOperator(fuzzyFilters(tags, username)))
+                .limit(FUZZY_MAX_MATCHES);
+    }
+
+    // Notes with any expanded term among their tags, most recent first (served by the readers or the tags index)
+    static Query buildFuzzyTagQuery(Map<String, Map<String, Integer>> expansions, Set<String> tags, String username) {
+        final List<Criteria> criteria = fuzzyFilters(tags, username);
+        criteria.add(Criteria.where(NoteDocument.TAGS).in(expandedTerms(expansions).stream().map(term -> term.toUpperCase(Locale.ROOT)).toList()));
+        return new Query(new Criteria().andOperator(criteria))
+                .with(Sort.by(Sort.Direction.DESC, NoteDocument.UPDATED_AT, "id"))
+                .limit(FUZZY_MAX_MATCHES);
+    }
+
+    private static Set<String> expandedTerms(Map<String, Map<String, Integer>> expansions) {
+        return expansions.values().stream()
+                .flatMap(candidates -> candidates.keySet().stream())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static List<Criteria> fuzzyFilters(Set<String> tags, String username) {
+        final List<Criteria> criteria = new ArrayList<>();
+        criteria.add(Criteria.where(NoteDocument.READERS).is(username));
+        if (tags != null && !tags.isEmpty()) {
+            criteria.add(Criteria.where(NoteDocument.TAGS).all(tags));
+        }
+        return criteria;
+    }
+
+    // Sum over the query words of the best match: its similarity (1 for the word itself) times the weight of its field
+    static double fuzzyScore(NoteDocument document, Map<String, Map<String, Integer>> expansions) {
+        final Set<String> titleTerms = FuzzyTerms.tokenize(document.getTitle());
+        final Set<String> contentTerms = FuzzyTerms.tokenize(document.getContent());
+        final Set<String> tagTerms = document.getTags() == null ? Set.of() : document.getTags().stream()
+                .map(tag -> tag.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+
+        double score = 0;
+        for (Map.Entry<String, Map<String, Integer>> expansion : expansions.entrySet()) {
+            double best = 0;
+            for (Map.Entry<String, Integer> candidate : expansion.getValue().entrySet()) {
+                final double weight = titleTerms.contains(candidate.getKey()) ? NoteDocument.TITLE_WEIGHT
+                        : contentTerms.contains(candidate.getKey()) || tagTerms.contains(candidate.getKey()) ? 1 : 0;
+                final double similarity = 1 - (double) candidate.getValue()
+                        / Math.min(expansion.getKey().length(), candidate.getKey().length());
+                best = Math.max(best, weight * similarity);
+            }
+            score += best;
+        }
+        return score;
+    }
+
+    // Served by the readers index (or the text index): only the tags of the matching notes go through the pipeline
+    @Override
+    public List<TagFacet> countTags(String text, Set<String> tags, String username, int limit) {
+        final List<AggregationOperation> stages = new ArrayList<>();
+        if (StringUtils.hasText(text)) {
+            // A $text match must be the first stage
+            stages.add(Aggregation.match(TextCriteria.forDefaultLanguage().matching(text)));
+        }
+
+        final Criteria criteria = Criteria.where(NoteDocument.READERS).is(username);
+        if (tags != null && !tags.isEmpty()) {
+            criteria.and(NoteDocument.TAGS).all(tags);
+        }
+        stages.add(Aggregation.match(criteria));
+        stages.add(Aggregation.project(NoteDocument.TAGS));
+        stages.add(Aggregation.unwind(NoteDocument.TAGS));
+        stages.add(Aggregation.group(NoteDocument.TAGS).count().as("count"));
+        stages.add(Aggregation.sort(Sort.by(Sort.Order.desc("count"), Sort.Order.asc("_id"))));
+        stages.add(Aggregation.limit(limit));
+
+        return mongoTemplate.aggregate(Aggregation.newAggregation(stages), NoteDocument.class, Document.class)
+                .getMappedResults().stream()
+                .map(result -> new TagFacet(result.getString("_id"), ((Number) result.get("count")).longValue()))
+                .toList();
+    }
+
+    @Override
+    public Set<String> bulkWrite(List<NoteIndexWrite> writes) {
+        if (writes.isEmpty()) {
+            return Set.of();
+        }
+
+        // Terms first: a failed write is retried and finds them again among the added words, an extra term is harmless
+        addTerms(addedTerms(writes));
+
+        // Unordered bulk: every write targets a different note, the server applies them in parallel and goes on after an error
+        final BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NoteDocument.class);
+        for (NoteIndexWrite write : writes) {
+            final Query byId = Query.query(Criteria.where("_id").is(write.id()));
+            if (write.document() != null) {
+                bulk.replaceOne(byId, write.document(), FindAndReplaceOptions.options().upsert());
+            } else if (write.fields() != null) {
+                final Update update = new Update();
+                write.fields().forEach(update::set);
+                bulk.updateOne(byId, update);
+            } else {
+                bulk.remove(byId);
+            }
+        }
+
+        try {
+            bulk.execute();
+            return Set.of();
+        } catch (BulkOperationException e) {
+            log.warn("Bulk index write rejected {} of {} writes", e.getErrors().size(), writes.size());
+            return e.getErrors().stream()
+                    .map(error -> writes.get(error.getIndex()).id())
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    // Words of the written text missing from the indexed version of the note: the others are in the vocabulary already
+    private Set<String> addedTerms(List<NoteIndexWrite> writes) {
+        final List<NoteIndexWrite> textWrites = writes.stream()
+                .filter(write -> textOf(write).findAny().isPresent())
+                .toList();
+        if (textWrites.isEmpty()) {
+            return Set.of();
+        }
+
+        final Query previous = Query.query(Criteria.where("_id").in(textWrites.stream().map(NoteIndexWrite::id).toList()));
+        previous.fields().include(NoteDocument.TITLE, NoteDocument.CONTENT, NoteDocument.TAGS);
+        final Map<String, Set<String>> previousTerms = mongoTemplate.find(previous, NoteDocument.class).stream()
+                .collect(Collectors.toMap(NoteDocument::getId, document -> termsOf(textOf(document))));
+
+        final Set<String> terms = new HashSet<>();
+        for (NoteIndexWrite write : textWrites) {
+            final Set<String> known = previousTerms.getOrDefault(write.id(), Set.of());
+            termsOf(textOf(write)).stream()
+                    .filter(term -> !known.contains(term))
+                    .forEach(terms::add);
+        }
+        return terms;
+    }
+
+    private static Set<String> termsOf(Stream<String> texts) {
+        return texts.flatMap(text -> FuzzyTerms.tokenize(text).stream())
+                .filter(term -> term.length() >= FuzzyTerms.MIN_LENGTH)
+                .collect(Collectors.toSet());
+    }
+
+    // Titles, contents and tags written to the index, whole documents or changed fields
+    private static Stream<String> textOf(NoteIndexWrite write) {
+        if (write.document() != null) {
+            return textOf(write.document());
+        }
+        if (write.fields() == null) {
+            return Stream.empty();
+        }
+        return Stream.of(NoteDocument.TITLE, NoteDocument.CONTENT, NoteDocument.TAGS)
+                .map(field -> write.fields().get(field))
+                .filter(Objects::nonNull)
+                .flatMap(value -> value instanceof Collection<?> values ? values.stream().map(String::valueOf) : Stream.of(String.valueOf(value)));
+    }
+
+    private static Stream<String> textOf(NoteDocument document) {
+        return Stream.concat(Stream.of(document.getTitle(), document.getContent()),
+                document.getTags() == null ? Stream.empty() : document.getTags().stream());
+    }
+
+    // The vocabulary only grows: a word no note contains anymore costs a candidate, never a wrong result
+    private void addTerms(Set<String> terms) {
+        if (terms.isEmpty()) {
+            return;
+        }
+
+        final BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NoteTermDocument.class);
+        for (String term : terms) {
+            bulk.upsert(Query.query(Criteria.where("_id").is(term)), new Update()
+                    .setOnInsert(NoteTermDocument.GRAMS, FuzzyTerms.trigrams(term))
+                    .setOnInsert(NoteTermDocument.LENGTH, term.length()));
+        }
+        bulk.execute();
+    }
+
+    @Override
+    public long count() {
+        return mongoTemplate.estimatedCount(NoteDocument.class);
+    }
+
+    // Grouped on the server: only the digests are sent back. Update times are stored as instants in the zone of the
+    // application (LocalDateTime conversion): their local parts give the same millis Postgres reads from its column
+    @Override
+    public List<NoteKeyDigest> digestKeys(String prefix, int length) {
+        final Document localParts = new Document("$dateToParts", new Document("date", "$" + NoteDocument.UPDATED_AT)
+                .append("timezone", ZoneId.systemDefault().getId()));
+        final Document localMillis = new Document("$toLong", new Document("$dateFromParts", new Document()
+                .append("year", "$$parts.year").append("month", "$$parts.month").append("day", "$$parts.day")
+                .append("hour", "$$parts.hour").append("minute", "$$parts.minute").append("second", "$$parts.second")
+                .append("millisecond", "$$parts.millisecond")));
+        final Document checksum = new Document("$mod", List.of(
+                new Document("$let", new Document("vars", new Document("parts", localParts)).append("in", localMillis)),
+                NoteKeyDigest.MODULUS));
+
+        final Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(byIdPrefix(prefix)),
+                context -> new Document("$group", new Document("_id", new Document("$substrCP", List.of("$_id", 0, length)))
+                        .append("notes", new Document("$sum", 1L))
+                        .append("checksum", new Document("$sum", checksum))
+                        .append("shares", new Document("$sum", sizeOf(NoteDocument.SHARED_WITH_USERNAMES)))
+                        .append("tags", new Document("$sum", sizeOf(NoteDocument.TAGS)))));
+
+        return mongoTemplate.aggregate(aggregation, NoteDocument.class, Document.class)
+                .getMappedResults().stream()
+                .map(result -> new NoteKeyDigest(result.getString("_id"),
+                        ((Number) result.get("notes")).longValue(), ((Number) result.get("checksum")).longValue(),
+                        ((Number) result.get("shares")).longValue(), ((Number) result.get("tags")).longValue()))
+                .toList();
+    }
+
+    @Override
+    public List<NoteKeyVersion> findKeyVersions(String prefix) {
+        final Query query = Query.query(byIdPrefix(prefix));
+        query.fields().include(NoteDocument.UPDATED_AT, NoteDocument.SHARED_WITH_USERNAMES, NoteDocument.TAGS);
+
+        return mongoTemplate.find(query, NoteDocument.class).stream()
+                .map(document -> new NoteKeyVersion(UUID.fromString(document.getId()), document.getUpdatedAt(),
+                        sizeOf(document.getSharedWithUsernames()), sizeOf(document.getTags())))
+                .toList();
+    }
+
+    private static Document sizeOf(String arrayField) {
+        return new Document("$size", new Document("$ifNull", List.of("$" + arrayField, List.of())));
+    }
+
+    private static long sizeOf(List<String> values) {
+        return values == null ? 0 : values.size();
+    }
+
+    // Anchored regex on a hex prefix: a range scan of the id index
+    private static Criteria byIdPrefix(String prefix) {
+        return Criteria.where("_id").regex("^" + prefix);
+    }
+
+    // The documents are loaded into a shadow collection, renamed over the live one once complete
+    @Override
+    public NoteIndexRebuild startRebuild() {
+        mongoTemplate.dropCollection(SHADOW_COLLECTION);
+        mongoTemplate.createCollection(SHADOW_COLLECTION);
+
+        return new NoteIndexRebuild() {
+
+            @Override
+            public void insert(List<NoteDocument> documents) {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NoteDocument.class, SHADOW_COLLECTION)
+                        .insert(documents)
+                        .execute();
+                addTerms(termsOf(documents.stream().flatMap(MongoNoteSearchRepository::textOf)));
+            }
+
+            @Override
+            public void publish() {
+                // Indexes are built once after the load, which is faster than maintaining them on every insert
+                final IndexOperations indexOperations = mongoTemplate.indexOps(SHADOW_COLLECTION);
+                IndexResolver.create(mongoTemplate.getConverter().getMappingContext())
+                        .resolveIndexFor(NoteDocument.class)
+                        .forEach(indexOperations::createIndex);
+
+                final MongoNamespace target = new MongoNamespace(mongoTemplate.getDb().getName(), mongoTemplate.getCollectionName(NoteDocument.class));
+                mongoTemplate.getCollection(SHADOW_COLLECTION).renameCollection(target, new RenameCollectionOptions().dropTarget(true));
+            }
+
+            @Override
+            public void discard() {
+                mongoTemplate.dropCollection(SHADOW_COLLECTION);
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,6 @@
+package com.dipa.notefournote.notes;
+
+import java.util.UUID;
+
+// Single-valued row of a note collection (tag name, shared username...)
+public record NoteAttribute(UUID noteId, String value) {}
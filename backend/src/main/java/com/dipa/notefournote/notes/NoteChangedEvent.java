@@ -0,0 +1,15 @@
+package com.dipa.notefournote.notes;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Published by every note write: all the users whose visible notes changed, with the version the write bumped them to
+// (noteId is null for bulk writes)
+public record NoteChangedEvent(UUID noteId, Map<String, Long> versions) {
+
+    public Set<String> usernames() {
+        return versions.keySet();
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.dipa.notefournote.notes;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores large note contents deflated (behind a format header) and reads back both compressed and legacy plain values.
+ */
+@Component
+@Converter
+public class NoteContentConverter implements AttributeConverter<String, String> {
+
+    // Format version 1: raw deflate, base64 encoded. The control character keeps it apart from typed text
+    static final String HEADER = "\u0001z1:";
+
+    private final boolean enabled;
+    private final int minLength;
+
+    private final DistributionSummary compressionRatio;
+    private final Counter originalBytes;
+    private final Counter storedBytes;
+
+    public NoteContentConverter(MeterRegistry meterRegistry,
+                                @Value("${notes.content.compression.enabled:false}") boolean enabled,
+                                @Value("${notes.content.compression.min-length:4096}") int minLength) {
+
+        this.enabled = enabled;
+        this.minLength = minLength;
+        this.compressionRatio = DistributionSummary.builder("notes.content.compression.ratio")
+                .description("Stored size over original size of the compressed note contents")
+                .register(meterRegistry);
+        this.originalBytes = Counter.builder("notes.content.compression.original")
+                .description("Original size of the compressed note contents")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.storedBytes = Counter.builder("notes.content.compression.stored")
+                .description("Stored size of the compressed note contents")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String convertToDatabaseColumn(String content) {
+        if (content == null) {
+            return null;
+        }
+
+        // Plain values starting with the header are always compressed, otherwise they would be misread
+        final boolean looksCompressed = content.startsWith(HEADER);
+        if (!looksCompressed && (!enabled || content.length() < minLength)) {
+            return content;
+        }
+
+        final byte[] original = content.getBytes(StandardCharsets.UTF_8);
+        final String stored = HEADER + Base64.getEncoder().encodeToString(deflate(original));
+
+        // Base64 adds a third to the deflated size: poorly compressible contents are kept as they are
+        if (!looksCompressed && stored.length() >= content.length()) {
+            return content;
+        }
+
+        originalBytes.increment(original.length);
+        storedBytes.increment(stored.length());
+        compressionRatio.record((double) stored.length() / original.length);
+        return stored;
+    }
+
+    @Override
+    public String convertToEntityAttribute(String stored) {
+        if (stored == null || !stored.startsWith(HEADER)) {
+            return stored;
+        }
+
+        final byte[] compressed = Base64.getDecoder().decode(stored.substring(HEADER.length()));
+        return new String(inflate(compressed), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] deflate(byte[] input) {
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+
+            final ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 2 + 64);
+            final byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input) {
+        final Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(input);
+
+            final ByteArrayOutputStream output = new ByteArrayOutputStream(input.length * 4);
+            final byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                final int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed note content");
+                }
+                output.write(buffer, 0, inflated);
+            }
+            return output.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted compressed note content", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.dipa.notefournote.notes;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Admin endpoint rewriting the existing large contents with the current compression settings
+ * (compresses legacy rows when enabled, restores plain values when disabled).
+ */
+@Slf4j
+@Component
+@Endpoint(id = "notecontent")
+public class NoteContentMigrationEndpoint {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final NoteRepository noteRepository;
+    private final NoteContentConverter contentConverter;
+    private final TransactionTemplate transactionTemplate;
+    private final int minLength;
+
+    public NoteContentMigrationEndpoint(NoteRepository noteRepository,
+                                        NoteContentConverter contentConverter,
+                                        TransactionTemplate transactionTemplate,
+                                        @Value("${notes.content.compression.min-length:4096}") int minLength) {
+        this.noteRepository = noteRepository;
+        this.contentConverter = contentConverter;
+        this.transactionTemplate = transactionTemplate;
+        this.minLength = minLength;
+    }
+
+    public record Result(long scanned, long rewritten, long elapsedMillis) {}
+
+    @WriteOperation
+    public Result migrate() {
+        log.info("Starting note content migration (min length: {})", minLength);
+        final long start = System.currentTimeMillis();
+
+        long scanned = 0;
+        long rewritten = 0;
+        UUID after = new UUID(0, 0);
+
+        // One short transaction per batch: the job can be stopped and run again at any time
+        while (true) {
+            final UUID from = after;
+            final List<NoteAttribute> contents = transactionTemplate.execute(status ->
+                    noteRepository.findStoredContentsAfter(from, BATCH_SIZE));
+            if (contents == null || contents.isEmpty()) {
+                break;
+            }
+
+            // Compressed rows are rewritten too (whatever their length), so that disabling compression restores them
+            final List<NoteAttribute> candidates = contents.stream()
+                    .filter(content -> content.value() != null)
+                    .filter(content -> content.value().startsWith(NoteContentConverter.HEADER)
+                            || content.value().length() >= minLength)
+                    .toList();
+            transactionTemplate.executeWithoutResult(status -> candidates.forEach(content ->
+                    noteRepository.rewriteContent(content.noteId(), contentConverter.convertToEntityAttribute(content.value()))));
+
+            scanned += contents.size();
+            rewritten += candidates.size();
+            after = contents.getLast().noteId();
+        }
+
+        final Result result = new Result(scanned, rewritten, System.currentTimeMillis() - start);
+        log.info("Note content migration completed: {}", result);
+        return result;
+    }
+
+}
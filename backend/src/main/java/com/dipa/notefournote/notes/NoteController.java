@@ -1,6 +1,7 @@
 package com.dipa.notefournote.notes;
 
 import com.dipa.notefournote.common.dto.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,13 +13,21 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 
@@ -32,6 +41,9 @@ import java.util.UUID;
 public class NoteController {
 
     private final NoteService noteService;
+    private final ObjectMapper objectMapper;
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
     @Operation(summary = "Crea una nuova nota",
                description = "Crea una nuova nota per l'utente autenticato. È possibile specificare i tag associati e gli username con cui condividere la nota già al momento della creazione.")
@@ -59,37 +71,108 @@ public class NoteController {
         return ResponseEntity.created(location).body(createdNote);
     }
 
-    @Operation(summary = "Ottiene tutte le note associate all'utente", description = "Restituisce una lista con tutte le note di cui l'utente ha visibilità (create da lui e convidise da altri con lui).")
-    @ApiResponse(responseCode = "200", description = "Lista di note recuperata con successo")
+    @Operation(summary = "Ottiene le note associate all'utente",
+               description = "Restituisce una pagina delle note di cui l'utente ha visibilità (create da lui e condivise da altri con lui), ordinate per data di ultima modifica. Il cursore restituito in 'nextCursor' permette di richiedere la pagina successiva.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Pagina di note recuperata con successo"),
+            @ApiResponse(responseCode = "304", description = "La pagina non è cambiata rispetto all'ETag indicato in If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Cursore di paginazione o selezione dei campi non validi", content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
     @GetMapping
-    public ResponseEntity<List<NoteResponse>> getAllNotes(Authentication authentication) {
+    public ResponseEntity<NotePageResponse> getAllNotes(
+            @Parameter(description = "Cursore opaco restituito dalla pagina precedente") @RequestParam(name = "cursor", required = false) String cursor,
+            @Parameter(description = "Numero massimo di note per pagina (max 100)") @RequestParam(name = "limit", defaultValue = "20") int limit,
+            @Parameter(description = "Campi da restituire separati da virgola, oppure 'summary' per escludere il contenuto") @RequestParam(name = "fields", required = false) String fields,
+            Authentication authentication,
+            WebRequest webRequest) {
+
+        final String username = authentication.getName();
+        log.debug("Received request to get notes page from user: '{}'", username);
+
+        final NoteFields noteFields = NoteFields.parse(fields);
+        // Tag and page come from the same cache entry: a cached page is revalidated against its own tag
+        final ETaggedNotePage notes = noteService.findNotesPage(username, cursor, limit, noteFields);
+        if (webRequest.checkNotModified(notes.eTag())) {
+            log.debug("Notes page not modified for user: '{}'", username);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(notes.eTag()).build();
+        }
+
+        log.debug("Successfully fetched notes page for user: '{}'", username);
+        return ResponseEntity.ok().eTag(notes.eTag()).body(notes.page());
+    }
+
+    @Operation(summary = "Importa più note in un'unica richiesta",
+               description = "Crea in blocco le note indicate per l'utente autenticato. Ogni nota è validata singolarmente: quelle non valide sono riportate con il relativo errore senza interrompere l'importazione delle altre.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Importazione completata, con l'esito di ogni nota"),
+            @ApiResponse(responseCode = "400", description = "Lista delle note mancante o troppo lunga")
+    })
+    @PostMapping("/import")
+    public ResponseEntity<BulkImportResponse> importNotes(@Valid @RequestBody BulkImportRequest request,
+            Authentication authentication) {
 
         final String username = authentication.getName();
-        log.debug("Received request to get all notes from user: '{}'", username);
+        log.debug("Received request to import {} notes from user: '{}'", request.notes().size(), username);
+
+        final BulkImportResponse response = noteService.importNotes(request, username);
 
-        final List<NoteResponse> notes = noteService.findAllNotesByUsername(username);
+        log.debug("Imported {} notes ({} failed) for user: '{}'", response.imported(), response.failed(), username);
+        return ResponseEntity.ok(response);
+    }
 
-        log.debug("Successfully fetched notes for user: '{}'", username);
-        return ResponseEntity.ok(notes);
+    @Operation(summary = "Esporta tutte le note dell'utente",
+               description = "Restituisce in streaming, in formato NDJSON (una nota JSON per riga), tutte le note di cui l'utente ha visibilità.")
+    @ApiResponse(responseCode = "200", description = "Esportazione avviata con successo")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportNotes(Authentication authentication) {
+
+        final String username = authentication.getName();
+        log.debug("Received request to export notes from user: '{}'", username);
+
+        final StreamingResponseBody body = outputStream -> noteService.exportNotes(username, note -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(note));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        log.debug("Streaming notes export for user: '{}'", username);
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("notes.ndjson").build().toString())
+                .body(body);
     }
 
     @Operation(summary = "Trova una nota tramite ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Nota trovata"),
+            @ApiResponse(responseCode = "304", description = "La nota non è cambiata rispetto all'ETag indicato in If-None-Match"),
             @ApiResponse(responseCode = "403", description = "Accesso non autorizzato", content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "404", description = "Nota non trovata", content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
     @GetMapping("/{noteId}")
     public ResponseEntity<NoteResponse> getNoteById(@Parameter(description = "ID della nota") @PathVariable UUID noteId,
-                                                    Authentication authentication) {
+                                                    Authentication authentication,
+                                                    WebRequest webRequest) {
 
         final String username = authentication.getName();
         log.debug("Received request from user '{}' to get note: '{}'", username, noteId);
 
+        // The version lookup answers polling clients without loading and mapping the note
+        final Optional<String> eTag = noteService.findNoteETag(noteId, username);
+        if (eTag.isPresent() && webRequest.checkNotModified(eTag.get())) {
+            log.debug("Note '{}' not modified for user: '{}'", noteId, username);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag.get()).build();
+        }
+
         final NoteResponse note = noteService.findNoteById(noteId, username);
 
         log.debug("Successfully fetched note for user: '{}'", username);
-        return ResponseEntity.ok(note);
+        return eTag.map(tag -> ResponseEntity.ok().eTag(tag))
+                   .orElseGet(ResponseEntity::ok)
+                   .body(note);
     }
 
     @Operation(summary = "Aggiorna una nota esistente", description = "Sostituisce completamente una nota di cui l'utente è proprietario.")
@@ -113,6 +196,28 @@ public class NoteController {
         return ResponseEntity.ok(updatedNote);
     }
 
+    @Operation(summary = "Modifica parzialmente una nota esistente",
+               description = "Aggiorna solo i campi indicati di una nota di cui l'utente è proprietario: titolo, contenuto e tag da aggiungere o rimuovere.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Nota aggiornata con successo"),
+            @ApiResponse(responseCode = "400", description = "Errore di validazione (es. nessuna modifica indicata)"),
+            @ApiResponse(responseCode = "403", description = "Accesso non autorizzato (solo il proprietario può modificare)"),
+            @ApiResponse(responseCode = "404", description = "Nota non trovata")
+    })
+    @PatchMapping("/{noteId}")
+    public ResponseEntity<NoteResponse> patchNote(@Parameter(description = "ID della nota da modificare") @PathVariable UUID noteId,
+                                                  @Valid @RequestBody PatchNoteRequest request,
+                                                  Authentication authentication) {
+
+        final String username = authentication.getName();
+        log.debug("Received request to patch note '{}' from user: '{}'", noteId, username);
+
+        final NoteResponse patchedNote = noteService.patchNote(noteId, request, username);
+
+        log.debug("Successfully patched note '{}' for user: '{}'", noteId, username);
+        return ResponseEntity.ok(patchedNote);
+    }
+
     @Operation(summary = "Cancella una nota mediante ID", description = "Elimina una nota di cui l'utente è proprietario.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Nota cancellata con successo"),
@@ -155,21 +260,51 @@ public class NoteController {
         return ResponseEntity.ok().build();
     }
 
-    @Operation(summary = "Cerca tra le note dell'utente", description = "Filtra le note (di proprietà e in condivisione) per testo (su titolo e contenuto) e/o per tag.")
+    @Operation(summary = "Conta le note per tag",
+               description = "Restituisce i tag delle note visibili all'utente con il numero di note per ciascuno (dal più frequente), eventualmente restringendo le note ai criteri della ricerca corrente (testo e/o tag).")
+    @ApiResponse(responseCode = "200", description = "Conteggi restituiti con successo")
+    @GetMapping("/facets")
+    public ResponseEntity<TagFacetsResponse> countTags(
+            @Parameter(description = "Testo da cercare nel titolo e nel contenuto") @RequestParam(name = "text", required = false) String text,
+            @Parameter(description = "Set di tag per cui filtrare (logica AND)") @RequestParam(name = "tags", required = false) Set<String> tags,
+            @Parameter(description = "Numero massimo di tag restituiti (max 100)") @RequestParam(name = "limit", defaultValue = "20") int limit,
+            Authentication authentication) {
+
+        return ResponseEntity.ok(noteService.countTags(text, tags, authentication.getName(), limit));
+    }
+
+    @Operation(summary = "Suggerisce tag e titoli mentre si digita",
+               description = "Restituisce i tag e i titoli delle note visibili all'utente che iniziano con il prefisso indicato (anche a partire da una parola interna del titolo).")
+    @ApiResponse(responseCode = "200", description = "Suggerimenti restituiti con successo")
+    @GetMapping("/suggestions")
+    public ResponseEntity<NoteSuggestionsResponse> suggest(
+            @Parameter(description = "Prefisso digitato") @RequestParam(name = "prefix") String prefix,
+            @Parameter(description = "Numero massimo di suggerimenti per tipo (max 20)") @RequestParam(name = "limit", defaultValue = "10") int limit,
+            Authentication authentication) {
+
+        return ResponseEntity.ok(noteService.suggest(prefix, authentication.getName(), limit));
+    }
+
+    @Operation(summary = "Cerca tra le note dell'utente",
+               description = "Filtra le note (di proprietà e in condivisione) per testo (su titolo e contenuto) e/o per tag. Le ricerche per testo sono ordinate per rilevanza (con 'fuzzy' tollerano errori di battitura, entro 1 o 2 caratteri per parola), quelle per soli tag per data di ultima modifica. Il cursore restituito in 'nextCursor' permette di richiedere la pagina successiva.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Ricerca completata con successo"),
-            @ApiResponse(responseCode = "400", description = "Nessun criterio di ricerca fornito")
+            @ApiResponse(responseCode = "400", description = "Nessun criterio di ricerca fornito, cursore o selezione dei campi non validi")
     })
     @GetMapping("/search")
-    public ResponseEntity<List<NoteResponse>> searchNotes(
+    public ResponseEntity<NotePageResponse> searchNotes(
             @Parameter(description = "Testo da cercare nel titolo e nel contenuto") @RequestParam(name = "text", required = false) String text,
             @Parameter(description = "Set di tag per cui filtrare (logica AND)") @RequestParam(name = "tags", required = false) Set<String> tags,
+            @Parameter(description = "Cursore opaco restituito dalla pagina precedente (con gli stessi criteri di ricerca)") @RequestParam(name = "cursor", required = false) String cursor,
+            @Parameter(description = "Numero massimo di note per pagina (max 100)") @RequestParam(name = "limit", defaultValue = "20") int limit,
+            @Parameter(description = "Campi da restituire separati da virgola, oppure 'summary' per escludere il contenuto") @RequestParam(name = "fields", required = false) String fields,
+            @Parameter(description = "Ricerca approssimata: trova anche le parole con errori di battitura") @RequestParam(name = "fuzzy", defaultValue = "false") boolean fuzzy,
             Authentication authentication) {
 
         final String username = authentication.getName();
         log.debug("Received request from user '{}' to search notes with: '{}' (text) | {} (tags)", username, text, tags);
 
-        final List<NoteResponse> results = noteService.searchNotes(text, tags, username);
+        final NotePageResponse results = noteService.searchNotes(text, tags, username, cursor, limit, NoteFields.parse(fields), fuzzy);
 
         log.debug("Successfully search notes for '{}' user with '{}' (text) | {} (tags): {}", username, text, tags, results);
         return ResponseEntity.ok(results);
@@ -0,0 +1,34 @@
+package com.dipa.notefournote.notes;
+
+import com.dipa.notefournote.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset position on (updatedAt, id) exchanged with clients as an opaque string.
+ */
+public record NoteCursor(LocalDateTime updatedAt, UUID id) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        final String raw = updatedAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static NoteCursor decode(String cursor) {
+        try {
+            final String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final int separatorIndex = raw.indexOf(SEPARATOR);
+            return new NoteCursor(
+                    LocalDateTime.parse(raw.substring(0, separatorIndex)),
+                    UUID.fromString(raw.substring(separatorIndex + 1)));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Malformed pagination cursor: " + cursor);
+        }
+    }
+
+}
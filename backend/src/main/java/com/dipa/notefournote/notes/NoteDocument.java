@@ -2,20 +2,38 @@ package com.dipa.notefournote.notes;
 
 import jakarta.persistence.Id;
 import lombok.Data;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
 @Document(collection = "notes_index")
+// Text searches can only use the text index (a compound text index cannot hold multikey fields),
+// tag-only searches are served in recency order by one of these (an index cannot hold two array fields)
+@CompoundIndex(name = "readers_recency", def = "{'readers': 1, 'updatedAt': -1, '_id': -1}")
+@CompoundIndex(name = "tags_recency", def = "{'tags': 1, 'updatedAt': -1, '_id': -1}")
 public class NoteDocument {
 
+    // Field names used by queries and partial index updates
+    public static final String OWNER_USERNAME = "ownerUsername";
+    public static final String TITLE = "title";
+    public static final String CONTENT = "content";
+    public static final String TAGS = "tags";
+    public static final String SHARED_WITH_USERNAMES = "sharedWithUsernames";
+    public static final String UPDATED_AT = "updatedAt";
+    public static final String READERS = "readers";
+
+    // Relevance weight of the title over the content, on either search engine
+    public static final float TITLE_WEIGHT = 2f;
+
     @Id
     private String id;
 
-    @TextIndexed(weight = 2f)
+    @TextIndexed(weight = TITLE_WEIGHT)
     @Field
     private String title;
 
@@ -32,4 +50,15 @@ public class NoteDocument {
     @Field
     private List<String> sharedWithUsernames;
 
+    // Owner and sharers: everyone allowed to find the note
+    @Field
+    private List<String> readers;
+
+    @Field
+    private LocalDateTime createdAt;
+
+    // Recency order of tag-only searches
+    @Field
+    private LocalDateTime updatedAt;
+
 }
\ No newline at end of file
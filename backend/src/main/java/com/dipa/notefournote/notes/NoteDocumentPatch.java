@@ -0,0 +1,27 @@
+package com.dipa.notefournote.notes;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// Changed fields of an indexed note: null title/content are left untouched
+public record NoteDocumentPatch(String title, String content, Set<String> addedTags, Set<String> removedTags) {
+
+    public boolean isEmpty() {
+        return title == null && content == null && addedTags.isEmpty() && removedTags.isEmpty();
+    }
+
+    public Set<String> changedFields() {
+        final Set<String> fields = new HashSet<>();
+        if (title != null) {
+            fields.add(NoteDocument.TITLE);
+        }
+        if (content != null) {
+            fields.add(NoteDocument.CONTENT);
+        }
+        if (!addedTags.isEmpty() || !removedTags.isEmpty()) {
+            fields.add(NoteDocument.TAGS);
+        }
+        return fields;
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.dipa.notefournote.notes;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Strong entity tags for the note resources, computed from versions only
+final class NoteETags {
+
+    private NoteETags() {}
+
+    static String forNote(UUID noteId, NoteVersion version, String username) {
+        // Ownership in the response depends on the viewer
+        return hash(noteId, version.updatedAt(), version.shareCount(), version.lastSharedAt(),
+                version.ownerUsername().equals(username));
+    }
+
+    // The version of the user's notes moves with every write to a note they can see (see UserNoteVersions)
+    static String forPage(String username, long version, String cursor, int limit, NoteFields fields) {
+        final String fieldNames = fields.names().stream().sorted().collect(Collectors.joining(","));
+        return hash(username, version, cursor, limit, fieldNames);
+    }
+
+    private static String hash(Object... parts) {
+        final String version = Stream.of(parts)
+                .map(Objects::toString)
+                .collect(Collectors.joining("|"));
+        return "\"" + DigestUtils.md5DigestAsHex(version.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+}
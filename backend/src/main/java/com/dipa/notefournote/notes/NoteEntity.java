@@ -6,6 +6,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
@@ -17,7 +18,13 @@ import java.util.UUID;
 @Setter
 @NoArgsConstructor
 @Entity
-@Table(name = "notes")
+// Updates write only the changed columns (a title change does not rewrite the content)
+@DynamicUpdate
+@Table(name = "notes", indexes = {
+        // Keyset pagination of the dashboard (owned notes and global recency scan)
+        @Index(name = "idx_notes_user_updated_at", columnList = "user_id, updated_at, id"),
+        @Index(name = "idx_notes_updated_at", columnList = "updated_at, id")
+})
 public class NoteEntity {
 
     @Id
@@ -28,6 +35,7 @@ public class NoteEntity {
     private String title;
 
     @Lob
+    @Convert(converter = NoteContentConverter.class)
     private String content;
 
     @CreationTimestamp
@@ -44,7 +52,8 @@ public class NoteEntity {
     @OneToMany(mappedBy = "note", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<NoteShare> shares = new HashSet<>();
 
-    @ManyToMany(cascade = { CascadeType.PERSIST, CascadeType.MERGE })
+    // Tags are created by TagRepository: notes only reference them by id
+    @ManyToMany
     @JoinTable(
             name = "note_tags",
             joinColumns = @JoinColumn(name = "note_id"),
@@ -0,0 +1,84 @@
+package com.dipa.notefournote.notes;
+
+import com.dipa.notefournote.exception.InvalidFieldSelectionException;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Sparse fieldset requested through the {@code fields} query parameter.
+ */
+public record NoteFields(Set<String> names) {
+
+    private static final String SUMMARY_ALIAS = "summary";
+
+    private static final Set<String> ALL_FIELDS = Set.of("id", "title", "content", "createdAt", "updatedAt",
+            "ownerUsername", "ownership", "sharedWithUsernames", "tags");
+
+    public static final NoteFields FULL = new NoteFields(ALL_FIELDS);
+
+    // Everything except the note body, i.e. what the dashboard list needs
+    public static final NoteFields SUMMARY = new NoteFields(ALL_FIELDS.stream()
+            .filter(field -> !"content".equals(field))
+            .collect(Collectors.toUnmodifiableSet()));
+
+    public static NoteFields parse(String fields) {
+        if (!StringUtils.hasText(fields)) {
+            return FULL;
+        }
+        if (SUMMARY_ALIAS.equalsIgnoreCase(fields.trim())) {
+            return SUMMARY;
+        }
+
+        final Set<String> names = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(StringUtils::hasText)
+                .collect(Collectors.toCollection(HashSet::new));
+
+        if (!ALL_FIELDS.containsAll(names)) {
+            throw new InvalidFieldSelectionException("Unknown fields in selection: " + fields);
+        }
+
+        // The identifier is always returned, clients need it to open the note
+        names.add("id");
+        return new NoteFields(Set.copyOf(names));
+    }
+
+    public boolean includes(String field) {
+        return names.contains(field);
+    }
+
+    public boolean includesContent() {
+        return includes("content");
+    }
+
+    public boolean includesTags() {
+        return includes("tags");
+    }
+
+    // Ownership is derived from the shares, so both need the sharing data
+    public boolean includesSharing() {
+        return includes("ownership") || includes("sharedWithUsernames");
+    }
+
+    public NoteResponse apply(NoteResponse note) {
+        if (names.size() == ALL_FIELDS.size()) {
+            return note;
+        }
+        return NoteResponse.builder()
+                           .id(note.id())
+                           .title(includes("title") ? note.title() : null)
+                           .content(includesContent() ? note.content() : null)
+                           .createdAt(includes("createdAt") ? note.createdAt() : null)
+                           .updatedAt(includes("updatedAt") ? note.updatedAt() : null)
+                           .ownerUsername(includes("ownerUsername") ? note.ownerUsername() : null)
+                           .ownership(includes("ownership") ? note.ownership() : null)
+                           .sharedWithUsernames(includes("sharedWithUsernames") ? note.sharedWithUsernames() : null)
+                           .tags(includesTags() ? note.tags() : null)
+                           .build();
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.dipa.notefournote.notes;
+
+import java.util.List;
+
+// Full rebuild of the search index, loaded next to the live one and swapped with it at once
+public interface NoteIndexRebuild {
+
+    // Called by parallel workers
+    void insert(List<NoteDocument> documents);
+
+    // Replaces the live index with the loaded documents
+    void publish();
+
+    void discard();
+
+}
@@ -0,0 +1,20 @@
+package com.dipa.notefournote.notes;
+
+import java.util.Map;
+
+// Single write of a bulk index sync: full document replacement, partial field update or deletion
+public record NoteIndexWrite(String id, NoteDocument document, Map<String, Object> fields) {
+
+    public static NoteIndexWrite replace(NoteDocument document) {
+        return new NoteIndexWrite(document.getId(), document, null);
+    }
+
+    public static NoteIndexWrite update(String id, Map<String, Object> fields) {
+        return new NoteIndexWrite(id, null, fields);
+    }
+
+    public static NoteIndexWrite delete(String id) {
+        return new NoteIndexWrite(id, null, null);
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.dipa.notefournote.notes;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Digest of the notes whose id starts with prefix, computed in the same way by Postgres and by the search index:
+ * their count, the sum of their update times (epoch millis modulo MODULUS, so the sum cannot overflow), and the total
+ * number of their shares and of their tags. Sharing does not move the update time, and notes are never unshared:
+ * the share count is what reveals a lost change of the readers.
+ * Digests are additive: a range and its sub-ranges are compared without reading the notes again.
+ */
+public record NoteKeyDigest(String prefix, long notes, long checksum, long shares, long tags) {
+
+    public static final long MODULUS = Integer.MAX_VALUE;
+
+    public static long checksumOf(LocalDateTime updatedAt) {
+        return Math.floorMod(updatedAt.toInstant(ZoneOffset.UTC).toEpochMilli(), MODULUS);
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.dipa.notefournote.notes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// What the reconciler compares for a single note: its update time, and the sizes of its readers and tags (sharing does not move the update time)
+public record NoteKeyVersion(UUID id, LocalDateTime updatedAt, long shares, long tags) {}
@@ -0,0 +1,78 @@
+package com.dipa.notefournote.notes;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process cache of the note pages returned to each user, weighed by their approximate size in memory.
+ */
+@Component
+public class NoteListCache {
+
+    private static final String CACHE_NAME = "notes.list";
+
+    // Rough per-object overheads, only used to weigh the entries
+    private static final int PAGE_OVERHEAD_BYTES = 64;
+    private static final int NOTE_OVERHEAD_BYTES = 160;
+    private static final int STRING_OVERHEAD_BYTES = 40;
+
+    private final Cache<Key, ETaggedNotePage> cache;
+    private final UserNoteVersions userNoteVersions;
+
+    public NoteListCache(UserNoteVersions userNoteVersions,
+                         MeterRegistry meterRegistry,
+                         @Value("${notes.cache.list.max-weight-bytes:52428800}") long maxWeightBytes,
+                         @Value("${notes.cache.list.expire-after-write:10m}") Duration expireAfterWrite) {
+
+        this.userNoteVersions = userNoteVersions;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Key key, ETaggedNotePage entry) -> weigh(entry.page()))
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public ETaggedNotePage get(String username, String cursor, int limit, NoteFields fields, Supplier<NotePageResponse> loader) {
+        // Keys carry the version read before the load: a write committed meanwhile moves the next requests (of any
+        // instance) to a new key, and stale entries are removed by weight and expiry. The tag is derived from the same
+        // version, so a page is never older than its tag
+        final long version = userNoteVersions.current(username);
+        final Key key = new Key(username, version, cursor, limit, fields);
+        return cache.get(key, ignored -> new ETaggedNotePage(loader.get(), NoteETags.forPage(username, version, cursor, limit, fields)));
+    }
+
+    static int weigh(NotePageResponse page) {
+        long bytes = PAGE_OVERHEAD_BYTES + sizeOf(page.nextCursor());
+        for (NoteResponse note : page.notes()) {
+            bytes += NOTE_OVERHEAD_BYTES
+                    + sizeOf(note.title())
+                    + sizeOf(note.content())
+                    + sizeOf(note.ownerUsername())
+                    + sizeOf(note.sharedWithUsernames())
+                    + sizeOf(note.tags());
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    private static long sizeOf(Collection<String> values) {
+        return values == null ? 0 : values.stream().mapToLong(NoteListCache::sizeOf).sum();
+    }
+
+    private static long sizeOf(String value) {
+        return value == null ? 0 : STRING_OVERHEAD_BYTES + value.length();
+    }
+
+    private record Key(String username, long version, String cursor, int limit, NoteFields fields) {}
+
+}
@@ -3,8 +3,10 @@ package com.dipa.notefournote.notes;
 import org.mapstruct.*;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Mapper(componentModel = "spring")
@@ -21,19 +23,42 @@ public interface NoteMapper {
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "user", ignore = true)
     @Mapping(target = "shares", ignore = true)
-    @Mapping(source = "tags", target = "tags", qualifiedByName = "mapNamesToTags")
+    @Mapping(target = "tags", ignore = true)
     NoteEntity toEntity(CreateNoteRequest request);
 
     @Mapping(source = "user.username", target = "ownerUsername")
+    @Mapping(target = "readers", ignore = true)
     @Mapping(source = "tags", target = "tags", qualifiedByName = "mapTagsToNamesAsList")
     @Mapping(source = "shares", target = "sharedWithUsernames", qualifiedByName = "mapSharesToUsernames")
     NoteDocument toDocument(NoteEntity entity);
 
+    default NoteDocument toDocument(NoteSummary summary, String content, Collection<String> tags, Collection<String> sharedWithUsernames) {
+        final NoteDocument document = new NoteDocument();
+        document.setId(summary.id().toString());
+        document.setTitle(summary.title());
+        document.setContent(content);
+        document.setTags(new ArrayList<>(tags));
+        document.setOwnerUsername(summary.ownerUsername());
+        document.setSharedWithUsernames(new ArrayList<>(sharedWithUsernames));
+        document.setReaders(readersOf(summary.ownerUsername(), sharedWithUsernames));
+        document.setCreatedAt(summary.createdAt());
+        document.setUpdatedAt(summary.updatedAt());
+        return document;
+    }
+
     @AfterMapping
     default void setEmptyTags(@MappingTarget NoteDocument document) {
         if (document.getTags() == null) {
             document.setTags(new ArrayList<>());
         }
+        document.setReaders(readersOf(document.getOwnerUsername(), document.getSharedWithUsernames()));
+    }
+
+    static List<String> readersOf(String ownerUsername, Collection<String> sharedWithUsernames) {
+        final List<String> readers = new ArrayList<>(sharedWithUsernames.size() + 1);
+        readers.add(ownerUsername);
+        readers.addAll(sharedWithUsernames);
+        return readers;
     }
 
     @Named("mapTagsToNames")
@@ -50,13 +75,6 @@ public interface NoteMapper {
                 .toList();
     }
 
-    @Named("mapNamesToTags")
-    static Set<TagEntity> mapNamesToTags(Set<String> names) {
-        return names.stream()
-                .map(TagEntity::new)
-                .collect(Collectors.toSet());
-    }
-
     @Named("mapSharesToUsernames")
     static List<String> mapSharesToUsernames(Set<NoteShare> shares) {
         return shares.stream()
@@ -65,6 +83,10 @@ public interface NoteMapper {
     }
 
     default NoteResponse toResponse(NoteEntity note, String currentUsername) {
+        return toResponse(note, mapTagsToNames(note.getTags()), currentUsername);
+    }
+
+    default NoteResponse toResponse(NoteEntity note, Set<String> tagNames, String currentUsername) {
 
         final String ownerUsername = note.getUser().getUsername();
 
@@ -74,10 +96,6 @@ public interface NoteMapper {
 
         final NoteOwnership ownership = getOwnership(ownerUsername, currentUsername, sharedWithUsernames);
 
-        final Set<String> tagNames = note.getTags().stream()
-                .map(TagEntity::getName)
-                .collect(Collectors.toSet());
-
         return NoteResponse.builder()
                            .id(note.getId())
                            .title(note.getTitle())
@@ -91,6 +109,38 @@ public interface NoteMapper {
                            .build();
     }
 
+    // Search hits are built from the index alone: documents hold every field of a response
+    default NoteResponse toResponse(NoteDocument document, String currentUsername) {
+        final Set<String> sharedWithUsernames = document.getSharedWithUsernames() == null
+                ? Set.of()
+                : Set.copyOf(document.getSharedWithUsernames());
+
+        return NoteResponse.builder()
+                           .id(UUID.fromString(document.getId()))
+                           .title(document.getTitle())
+                           .content(document.getContent())
+                           .createdAt(document.getCreatedAt())
+                           .updatedAt(document.getUpdatedAt())
+                           .ownerUsername(document.getOwnerUsername())
+                           .ownership(getOwnership(document.getOwnerUsername(), currentUsername, sharedWithUsernames))
+                           .sharedWithUsernames(sharedWithUsernames)
+                           .tags(document.getTags() == null ? Set.of() : Set.copyOf(document.getTags()))
+                           .build();
+    }
+
+    default NoteResponse toResponse(NoteSummary summary, Set<String> tags, Set<String> sharedWithUsernames, String currentUsername) {
+        return NoteResponse.builder()
+                           .id(summary.id())
+                           .title(summary.title())
+                           .createdAt(summary.createdAt())
+                           .updatedAt(summary.updatedAt())
+                           .ownerUsername(summary.ownerUsername())
+                           .ownership(getOwnership(summary.ownerUsername(), currentUsername, sharedWithUsernames))
+                           .sharedWithUsernames(sharedWithUsernames)
+                           .tags(tags)
+                           .build();
+    }
+
     private NoteOwnership getOwnership(String ownerUsername, String currentUsername, Set<String> sharedWithUsernames) {
         if (!ownerUsername.equals(currentUsername)) {
             return NoteOwnership.SHARED_WITH_ME;
@@ -0,0 +1,12 @@
+package com.dipa.notefournote.notes;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record NotePageResponse(
+        List<NoteResponse> notes,
+        int size,
+        String nextCursor
+) {}
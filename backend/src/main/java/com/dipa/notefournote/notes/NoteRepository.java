@@ -1,18 +1,238 @@
 package com.dipa.notefournote.notes;
 
-import com.dipa.notefournote.users.UserEntity;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface NoteRepository extends JpaRepository<NoteEntity, UUID> {
 
-    List<NoteEntity> findAllByUser(UserEntity user);
-
     Optional<NoteEntity> findByIdAndUser_Username(UUID id, String username);
 
-}
\ No newline at end of file
+    // Fetch plan used to build responses: owner and tags, then the shares by a second query that initializes them on
+    // the note already loaded (as the list path does), since joining both collections would load their cartesian product
+    default Optional<NoteEntity> findWithDetailsById(UUID id) {
+        return findWithTagsById(id).map(note -> {
+            findWithSharesById(id);
+            return note;
+        });
+    }
+
+    @EntityGraph(attributePaths = {"user", "tags"})
+    Optional<NoteEntity> findWithTagsById(UUID id);
+
+    @EntityGraph(attributePaths = {"shares", "shares.sharedWithUser"})
+    Optional<NoteEntity> findWithSharesById(UUID id);
+
+    // Same fetch plan for writers, after locking the note row alone: concurrent writes of a note (and the revisions
+    // numbered from them) are serialized, while the row of its owner stays unlocked
+    default Optional<NoteEntity> findWithDetailsForUpdateById(UUID id) {
+        return lockById(id).flatMap(note -> findWithDetailsById(id));
+    }
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select n from NoteEntity n where n.id = :id")
+    Optional<NoteEntity> lockById(UUID id);
+
+    @EntityGraph(attributePaths = {"user"})
+    List<NoteEntity> findAllWithUserByIdIn(Collection<UUID> ids);
+
+    @EntityGraph(attributePaths = {"shares", "shares.sharedWithUser"})
+    List<NoteEntity> findAllWithSharesByIdIn(Collection<UUID> ids);
+
+    default List<NoteCursor> findVisibleByUserId(UUID userId, int limit) {
+        return findVisibleKeys(userId, limit).stream().map(VisibleNoteKey::toCursor).toList();
+    }
+
+    default List<NoteCursor> findVisibleByUserIdAfter(UUID userId, LocalDateTime updatedAt, UUID id, int limit) {
+        return findVisibleKeysAfter(userId, updatedAt, id, limit).stream().map(VisibleNoteKey::toCursor).toList();
+    }
+
+    // Owned and shared notes merged from two bounded index scans, returning only the keyset columns: owned notes are read
+    // on idx_notes_user_updated_at, shared ones through idx_note_shares_shared_with_user (a note is never shared with its owner)
+    @Query(nativeQuery = true, value = """
+            (select n.updated_at as updatedAt, n.id as id from notes n
+             where n.user_id = :userId
+             order by n.updated_at desc, n.id desc
+             limit :limit)
+            union all
+            (select n.updated_at, n.id from note_shares s join notes n on n.id = s.note_id
+             where s.shared_with_user_id = :userId
+             order by n.updated_at desc, n.id desc
+             limit :limit)
+            order by 1 desc, 2 desc
+            limit :limit
+            """)
+    List<VisibleNoteKey> findVisibleKeys(UUID userId, int limit);
+
+    @Query(nativeQuery = true, value = """
+            (select n.updated_at as updatedAt, n.id as id from notes n
+             where n.user_id = :userId
+               and (n.updated_at, n.id) < (:updatedAt, :id)
+             order by n.updated_at desc, n.id desc
+             limit :limit)
+            union all
+            (select n.updated_at, n.id from note_shares s join notes n on n.id = s.note_id
+             where s.shared_with_user_id = :userId
+               and (n.updated_at, n.id) < (:updatedAt, :id)
+             order by n.updated_at desc, n.id desc
+             limit :limit)
+            order by 1 desc, 2 desc
+            limit :limit
+            """)
+    List<VisibleNoteKey> findVisibleKeysAfter(UUID userId, LocalDateTime updatedAt, UUID id, int limit);
+
+    // Native rows carry JDBC timestamps: the projection converts them before the cursor is built
+    interface VisibleNoteKey {
+
+        LocalDateTime getUpdatedAt();
+
+        UUID getId();
+
+        default NoteCursor toCursor() {
+            return new NoteCursor(getUpdatedAt(), getId());
+        }
+
+    }
+
+    // Server-side cursor over the visible notes (ids only), used by the export
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select n.id from NoteEntity n
+            where n.user.username = :username
+               or exists (select 1 from NoteShare s where s.note = n and s.sharedWithUser.username = :username)
+            order by n.updatedAt desc, n.id desc
+            """)
+    Stream<UUID> streamVisibleIdsByUsername(String username);
+
+    // Titles and tag ids of the visible notes, loaded once per user by the suggestions
+    @Query("""
+            select new com.dipa.notefournote.notes.NoteAttribute(n.id, n.title) from NoteEntity n
+            where n.user.username = :username
+               or exists (select 1 from NoteShare s where s.note = n and s.sharedWithUser.username = :username)
+            """)
+    List<NoteAttribute> findVisibleTitlesByUsername(String username);
+
+    @Query("""
+            select new com.dipa.notefournote.notes.NoteTagId(n.id, t.id) from NoteEntity n join n.tags t
+            where n.user.username = :username
+               or exists (select 1 from NoteShare s where s.note = n and s.sharedWithUser.username = :username)
+            """)
+    List<NoteTagId> findVisibleTagIdsByUsername(String username);
+
+    // Projections for summary responses: the content column is never read
+    @Query("""
+            select new com.dipa.notefournote.notes.NoteSummary(n.id, n.title, n.createdAt, n.updatedAt, u.username)
+            from NoteEntity n join n.user u
+            where n.id in :ids
+            """)
+    List<NoteSummary> findSummariesByIdIn(Collection<UUID> ids);
+
+    // Keyset scan of a key range (after, last], used by the search index rebuild
+    @Query("""
+            select new com.dipa.notefournote.notes.NoteSummary(n.id, n.title, n.createdAt, n.updatedAt, u.username)
+            from NoteEntity n join n.user u
+            where n.id > :after and n.id <= :last
+            order by n.id
+            """)
+    List<NoteSummary> findSummariesInRange(UUID after, UUID last, Limit limit);
+
+    // Digests of a key range grouped by id prefix (see NoteKeyDigest), compared with the search index by the reconciler:
+    // only the aggregates leave the database
+    @Query(nativeQuery = true, value = """
+            select substr(cast(n.id as text), 1, :length) as prefix,
+                   count(*) as notes,
+                   cast(coalesce(sum(mod(cast(floor(extract(epoch from n.updated_at) * 1000) as bigint), 2147483647)), 0) as bigint) as checksum,
+                   cast(coalesce(sum(s.shares), 0) as bigint) as shares,
+                   cast(coalesce(sum(t.tags), 0) as bigint) as tags
+            from notes n
+            left join (select note_id, count(*) as shares from note_shares
+                       where note_id between :first and :last group by note_id) s on s.note_id = n.id
+            left join (select note_id, count(*) as tags from note_tags
+                       where note_id between :first and :last group by note_id) t on t.note_id = n.id
+            where n.id between :first and :last
+            group by 1
+            """)
+    List<NoteKeyDigest> digestKeys(UUID first, UUID last, int length);
+
+    @Query("""
+            select new com.dipa.notefournote.notes.NoteKeyVersion(
+                n.id,
+                n.updatedAt,
+                (select count(s) from NoteShare s where s.note = n),
+                (select count(t) from NoteEntity m join m.tags t where m = n))
+            from NoteEntity n
+            where n.id between :first and :last
+            """)
+    List<NoteKeyVersion> findKeyVersions(UUID first, UUID last);
+
+    // Reads the join table only: names come from the TagDictionary
+    @Query("""
+            select new com.dipa.notefournote.notes.NoteTagId(n.id, t.id)
+            from NoteEntity n join n.tags t
+            where n.id in :ids
+            """)
+    List<NoteTagId> findTagIdsByNoteIdIn(Collection<UUID> ids);
+
+    @Query("""
+            select new com.dipa.notefournote.notes.NoteAttribute(s.note.id, u.username)
+            from NoteShare s join s.sharedWithUser u
+            where s.note.id in :ids
+            """)
+    List<NoteAttribute> findSharedUsernamesByNoteIdIn(Collection<UUID> ids);
+
+    // Version lookups backing conditional GETs
+    @Query("""
+            select new com.dipa.notefournote.notes.NoteVersion(
+                n.updatedAt,
+                u.username,
+                (select count(s) from NoteShare s where s.note = n),
+                (select max(s.sharedAt) from NoteShare s where s.note = n),
+                (select count(s) from NoteShare s where s.note = n and s.sharedWithUser.username = :username))
+            from NoteEntity n join n.user u
+            where n.id = :id
+            """)
+    Optional<NoteVersion> findVersionById(UUID id, String username);
+
+    @Query("""
+            select new com.dipa.notefournote.notes.NoteAttribute(n.id, n.content)
+            from NoteEntity n
+            where n.id in :ids
+            """)
+    List<NoteAttribute> findContentsByIdIn(Collection<UUID> ids);
+
+    // Keyset scan over all the notes, used by the content compression migration: the values are read as stored (the large
+    // object text, bypassing the converter), so compressed rows can be told apart from plain ones
+    @Query(nativeQuery = true, value = """
+            select n.id as noteId, convert_from(lo_get(n.content), 'UTF8') as value
+            from notes n
+            where n.id > :after
+            order by n.id
+            limit :limit
+            """)
+    List<NoteAttribute> findStoredContentsAfter(UUID after, int limit);
+
+    // Writes the content again through its converter, leaving the update timestamp untouched
+    @Modifying
+    @Query("update NoteEntity n set n.content = :content where n.id = :id")
+    int rewriteContent(UUID id, String content);
+
+}
@@ -0,0 +1,61 @@
+package com.dipa.notefournote.notes;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process cache of the search results of each user. Keys are stamped with the user's search version, bumped
+ * in Postgres when the indexer syncs a note the user can read (not at commit: until then the index still returns the
+ * previous results), so stale entries become unreachable without scanning the cache, on every instance.
+ */
+@Component
+public class NoteSearchCache {
+
+    private static final String CACHE_NAME = "notes.search";
+
+    private final Cache<Key, NotePageResponse> cache;
+    private final UserNoteVersions userNoteVersions;
+
+    public NoteSearchCache(UserNoteVersions userNoteVersions,
+                           MeterRegistry meterRegistry,
+                           @Value("${notes.cache.search.max-weight-bytes:33554432}") long maxWeightBytes,
+                           @Value("${notes.cache.search.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.userNoteVersions = userNoteVersions;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Key key, NotePageResponse page) -> NoteListCache.weigh(page))
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public NotePageResponse get(String username, String text, Set<String> tags, String cursor, int limit, NoteFields fields, boolean fuzzy,
+                                Supplier<NotePageResponse> loader) {
+        // Searches started before a sync still read the previous index and land on an unreachable key
+        final Key key = new Key(username, userNoteVersions.currentSearch(username), normalize(text),
+                tags == null ? Set.of() : new TreeSet<>(tags), cursor, limit, fields, fuzzy);
+        return cache.get(key, ignored -> loader.get());
+    }
+
+    // Text searches ignore case and repeated spaces (on either search engine)
+    private static String normalize(String text) {
+        return StringUtils.hasText(text) ? text.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT) : "";
+    }
+
+    private record Key(String username, long version, String text, Set<String> tags,
+                       String cursor, int limit, NoteFields fields, boolean fuzzy) {}
+
+}
@@ -0,0 +1,53 @@
+package com.dipa.notefournote.notes;
+
+import com.dipa.notefournote.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in search results exchanged with clients as an opaque string: an offset for text searches
+ * (ranked by score) or a keyset on (updatedAt, id) for tag-only searches (ranked by recency).
+ */
+public record NoteSearchCursor(Integer offset, LocalDateTime updatedAt, String id) {
+
+    private static final String SEPARATOR = "|";
+    private static final String OFFSET_PREFIX = "o";
+    private static final String KEYSET_PREFIX = "k";
+
+    public static NoteSearchCursor ofOffset(int offset) {
+        return new NoteSearchCursor(offset, null, null);
+    }
+
+    public static NoteSearchCursor after(NoteDocument document) {
+        return new NoteSearchCursor(null, document.getUpdatedAt(), document.getId());
+    }
+
+    public boolean isOffset() {
+        return offset != null;
+    }
+
+    public String encode() {
+        final String raw = isOffset()
+                ? OFFSET_PREFIX + SEPARATOR + offset
+                : KEYSET_PREFIX + SEPARATOR + updatedAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static NoteSearchCursor decode(String cursor) {
+        try {
+            final String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\" + SEPARATOR);
+            if (parts.length == 2 && OFFSET_PREFIX.equals(parts[0]) && Integer.parseInt(parts[1]) >= 0) {
+                return ofOffset(Integer.parseInt(parts[1]));
+            }
+            if (parts.length == 3 && KEYSET_PREFIX.equals(parts[0])) {
+                return new NoteSearchCursor(null, LocalDateTime.parse(parts[1]), parts[2]);
+            }
+        } catch (RuntimeException e) {
+            // Reported below as any other malformed cursor
+        }
+        throw new InvalidCursorException("Malformed search cursor: " + cursor);
+    }
+
+}
@@ -1,23 +1,41 @@
 package com.dipa.notefournote.notes;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface NoteService {
 
     NoteResponse createNote(CreateNoteRequest request, String username);
 
-    List<NoteResponse> findAllNotesByUsername(String username);
+    BulkImportResponse importNotes(BulkImportRequest request, String username);
+
+    NotePageResponse findAllNotesByUsername(String username, String cursor, int limit, NoteFields fields);
 
     NoteResponse findNoteById(UUID noteId, String username);
 
+    void exportNotes(String username, Consumer<NoteResponse> consumer);
+
+    Optional<String> findNoteETag(UUID noteId, String username);
+
+    ETaggedNotePage findNotesPage(String username, String cursor, int limit, NoteFields fields);
+
     NoteResponse updateNote(UUID noteId, UpdateNoteRequest request, String username);
 
+    NoteResponse patchNote(UUID noteId, PatchNoteRequest request, String username);
+
+    NoteResponse restoreRevision(UUID noteId, int revision, String username);
+
     void deleteNote(UUID noteId, String username);
 
     void shareNote(UUID noteId, ShareNoteRequest request, String ownerUsername);
 
-    List<NoteResponse> searchNotes(String text, Set<String> tags, String username);
+    NotePageResponse searchNotes(String text, Set<String> tags, String username, String cursor, int limit, NoteFields fields, boolean fuzzy);
+
+    TagFacetsResponse countTags(String text, Set<String> tags, String username, int limit);
+
+    NoteSuggestionsResponse suggest(String prefix, String username, int limit);
 
 }
\ No newline at end of file
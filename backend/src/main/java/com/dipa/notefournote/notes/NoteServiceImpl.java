@@ -1,18 +1,28 @@
 package com.dipa.notefournote.notes;
 
+import com.dipa.notefournote.exception.InvalidCursorException;
 import com.dipa.notefournote.exception.NoteAccessDeniedException;
 import com.dipa.notefournote.exception.NoteNotFoundException;
 import com.dipa.notefournote.exception.UserNotFoundException;
+import com.dipa.notefournote.indexing.NoteIndexOutbox;
+import com.dipa.notefournote.revisions.NoteRevisionService;
+import com.dipa.notefournote.revisions.NoteRevisionState;
 import com.dipa.notefournote.users.UserEntity;
 import com.dipa.notefournote.users.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.function.Function;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -24,8 +34,23 @@ public class NoteServiceImpl implements NoteService {
     private final NoteRepository noteRepository;
     private final UserRepository userRepository;
     private final NoteMapper noteMapper;
-    private final NoteSearchRepository noteSearchRepository;
+    private final CustomNoteSearchRepository noteSearchRepository;
+    private final NoteIndexOutbox noteIndexOutbox;
     private final TagRepository tagRepository;
+    private final TagDictionary tagDictionary;
+    private final NoteListCache noteListCache;
+    private final UserNoteVersions userNoteVersions;
+    private final NoteSearchCache noteSearchCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final NoteRevisionService noteRevisionService;
+    private final NoteSuggestions noteSuggestions;
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_SUGGESTIONS = 20;
+    private static final int EXPORT_CHUNK_SIZE = 500;
+    private static final int IMPORT_CHUNK_SIZE = 500;
 
     @Override
     @Transactional
@@ -39,58 +64,194 @@ public class NoteServiceImpl implements NoteService {
         newNote.setUser(user);
 
         // Persists new tags (if any) before saving the note entity
-        final Set<TagEntity> tags = request.tags().stream()
-                .map(tagName -> tagRepository
-                        .findByName(tagName)
-                        .orElseGet(() -> tagRepository.saveAndFlush(new TagEntity(tagName))))
-                .collect(Collectors.toSet());
+        final Set<TagEntity> tags = tagRepository.findOrCreateAllByNameIn(request.tags());
         newNote.setTags(tags);
 
         // Handling sharing during note creation (filtering out the current user if provided also as target)
-        final Set<NoteShare> noteShares = request.shareWithUsernames().stream()
-                .filter(targetUser -> !username.equals(targetUser))
-                .map(targetUsername -> {
-                    final UserEntity userToShareWith = userRepository.findByUsername(targetUsername)
-                            .orElseThrow(() -> new UserNotFoundException("User '" + targetUsername + "' not found for sharing"));
-
-                    final NoteShare noteShare = new NoteShare();
-                    noteShare.setNote(newNote);
-                    noteShare.setSharedWithUser(userToShareWith);
-
-                    return noteShare;
-                })
+        final Set<NoteShare> noteShares = findShareTargets(sharedWithUsernames(request, username)).stream()
+                .map(userToShareWith -> new NoteShare(newNote, userToShareWith))
                 .collect(Collectors.toSet());
         newNote.setShares(noteShares);
 
         final NoteEntity savedNote = noteRepository.saveAndFlush(newNote);
         log.info("Note created successfully for user '{}' with id: '{}'", username, savedNote.getId());
 
-        log.debug("Synchronizing creation to MongoDB note with id: '{}'", savedNote.getId());
-        final NoteDocument document = noteMapper.toDocument(savedNote);
-        final NoteDocument syncDocument = noteSearchRepository.save(document);
-        log.debug("Synchronized creation to MongoDB note with id: '{}'", syncDocument.getId());
+        // The search index is synced by the indexer once the transaction commits
+        noteIndexOutbox.upsert(savedNote.getId());
 
+        publishNoteChanged(savedNote);
         return noteMapper.toResponse(savedNote, username);
     }
 
+    @Override
+    @Transactional
+    public BulkImportResponse importNotes(BulkImportRequest request, String username) {
+        final List<CreateNoteRequest> items = request.notes();
+        log.info("Importing {} notes for user '{}'", items.size(), username);
+
+        final UserEntity user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+
+        final BulkImportItemResult[] results = new BulkImportItemResult[items.size()];
+
+        // Share targets of all the items are resolved with a single query
+        final Set<String> targetUsernames = items.stream()
+                .filter(Objects::nonNull)
+                .flatMap(item -> item.shareWithUsernames().stream())
+                .filter(targetUsername -> !username.equals(targetUsername))
+                .collect(Collectors.toSet());
+        final Map<String, UUID> userIds = targetUsernames.isEmpty()
+                ? Map.of()
+                : userRepository.findAllByUsernameIn(targetUsernames).stream()
+                        .collect(Collectors.toMap(UserEntity::getUsername, UserEntity::getId));
+
+        final List<Integer> accepted = new ArrayList<>(items.size());
+        for (int index = 0; index < items.size(); index++) {
+            final String error = validateImportItem(items.get(index), username, userIds);
+            if (error != null) {
+                results[index] = BulkImportItemResult.failed(index, error);
+            } else {
+                accepted.add(index);
+            }
+        }
+
+        final Set<String> tagNames = accepted.stream()
+                .flatMap(index -> items.get(index).tags().stream())
+                .collect(Collectors.toSet());
+        final Map<String, TagEntity> tagsByName = tagRepository.findOrCreateAllByNameIn(tagNames).stream()
+                .collect(Collectors.toMap(TagEntity::getName, tag -> tag));
+
+        // Notes are inserted in chunks through JDBC batching; the persistence context is cleared after each chunk,
+        // so owner and share targets are attached again as references without extra selects
+        final List<UUID> importedIds = new ArrayList<>(accepted.size());
+        final Set<String> affectedUsernames = new HashSet<>(Set.of(username));
+        for (int from = 0; from < accepted.size(); from += IMPORT_CHUNK_SIZE) {
+            final List<Integer> chunk = accepted.subList(from, Math.min(from + IMPORT_CHUNK_SIZE, accepted.size()));
+            final UserEntity owner = entityManager.getReference(UserEntity.class, user.getId());
+
+            final List<NoteEntity> notes = new ArrayList<>(chunk.size());
+            for (int index : chunk) {
+                final CreateNoteRequest item = items.get(index);
+
+                final NoteEntity note = noteMapper.toEntity(item);
+                note.setUser(owner);
+                note.setTags(item.tags().stream()
+                        .map(tagsByName::get)
+                        .collect(Collectors.toSet()));
+                note.setShares(sharedWithUsernames(item, username).stream()
+                        .map(targetUsername -> new NoteShare(note, entityManager.getReference(UserEntity.class, userIds.get(targetUsername))))
+                        .collect(Collectors.toSet()));
+                notes.add(note);
+            }
+
+            noteRepository.saveAll(notes);
+            noteIndexOutbox.upsertAll(notes.stream().map(NoteEntity::getId).toList());
+            entityManager.flush();
+
+            for (int i = 0; i < chunk.size(); i++) {
+                final int index = chunk.get(i);
+
+                results[index] = BulkImportItemResult.imported(index, notes.get(i).getId());
+                importedIds.add(notes.get(i).getId());
+                affectedUsernames.addAll(sharedWithUsernames(items.get(index), username));
+            }
+            entityManager.clear();
+        }
+
+        if (!importedIds.isEmpty()) {
+            eventPublisher.publishEvent(new NoteChangedEvent(null, userNoteVersions.bump(affectedUsernames)));
+        }
+
+        log.info("Imported {} of {} notes for user '{}'", accepted.size(), items.size(), username);
+        return new BulkImportResponse(accepted.size(), items.size() - accepted.size(), List.of(results));
+    }
+
+    private String validateImportItem(CreateNoteRequest item, String username, Map<String, UUID> userIds) {
+        if (item == null) {
+            return "La nota non può essere vuota.";
+        }
+
+        final Set<ConstraintViolation<CreateNoteRequest>> violations = validator.validate(item);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(" "));
+        }
+
+        return sharedWithUsernames(item, username).stream()
+                .filter(targetUsername -> !userIds.containsKey(targetUsername))
+                .sorted()
+                .findFirst()
+                .map(targetUsername -> "Utente '" + targetUsername + "' non trovato per la condivisione.")
+                .orElse(null);
+    }
+
+    // Share targets are read with a single query, new shares are then inserted through JDBC batching
+    private List<UserEntity> findShareTargets(Set<String> targetUsernames) {
+        if (targetUsernames.isEmpty()) {
+            return List.of();
+        }
+
+        final List<UserEntity> users = userRepository.findAllByUsernameIn(targetUsernames);
+        if (users.size() < targetUsernames.size()) {
+            final Set<String> foundUsernames = users.stream()
+                    .map(UserEntity::getUsername)
+                    .collect(Collectors.toSet());
+            final String missingUsername = targetUsernames.stream()
+                    .filter(targetUsername -> !foundUsernames.contains(targetUsername))
+                    .sorted()
+                    .findFirst()
+                    .orElseThrow();
+            throw new UserNotFoundException("User '" + missingUsername + "' not found for sharing");
+        }
+
+        return users;
+    }
+
+    private static Set<String> sharedWithUsernames(CreateNoteRequest request, String username) {
+        return request.shareWithUsernames().stream()
+                .filter(targetUsername -> !username.equals(targetUsername))
+                .collect(Collectors.toSet());
+    }
+
     @Override
     @Transactional(readOnly = true)
-    public List<NoteResponse> findAllNotesByUsername(String username) {
-        log.info("Fetching all notes for user '{}'", username);
+    public NotePageResponse findAllNotesByUsername(String username, String cursor, int limit, NoteFields fields) {
+        return findNotesPage(username, cursor, limit, fields).page();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ETaggedNotePage findNotesPage(String username, String cursor, int limit, NoteFields fields) {
+        final int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        return noteListCache.get(username, cursor, pageSize, fields, () -> loadNotesPage(username, cursor, pageSize, fields));
+    }
+
+    private NotePageResponse loadNotesPage(String username, String cursor, int pageSize, NoteFields fields) {
+        log.info("Fetching notes page for user '{}' after cursor: '{}'", username, cursor);
 
         final UserEntity user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
 
-        final Stream<NoteEntity> ownedNotes = noteRepository.findAllByUser(user).stream();
-        final Stream<NoteEntity> sharedNotes = user.getReceivedShares().stream().map(NoteShare::getNote);
-        final List<NoteResponse> notes = Stream.concat(ownedNotes, sharedNotes)
-                .distinct()
-                .sorted(Comparator.comparing(NoteEntity::getUpdatedAt).reversed())
-                .map(note -> noteMapper.toResponse(note, username))
-                .toList();
+        // One extra row is requested to know whether a next page exists
+        final int pageLimit = pageSize + 1;
+        final List<NoteCursor> pageKeys;
+        if (StringUtils.hasText(cursor)) {
+            final NoteCursor after = NoteCursor.decode(cursor);
+            pageKeys = noteRepository.findVisibleByUserIdAfter(user.getId(), after.updatedAt(), after.id(), pageLimit);
+        } else {
+            pageKeys = noteRepository.findVisibleByUserId(user.getId(), pageLimit);
+        }
+
+        final boolean hasNext = pageKeys.size() > pageSize;
+        final List<NoteCursor> currentPage = hasNext ? pageKeys.subList(0, pageSize) : pageKeys;
 
-        log.info("Fetched all notes for user '{}': {}", username, notes);
-        return notes;
+        final List<NoteResponse> notes = toResponses(currentPage.stream().map(NoteCursor::id).toList(), username, fields);
+        final String nextCursor = hasNext ? currentPage.getLast().encode() : null;
+
+        log.info("Fetched {} notes for user '{}' (next cursor: '{}')", notes.size(), username, nextCursor);
+        return new NotePageResponse(notes, notes.size(), nextCursor);
     }
 
     @Override
@@ -98,7 +259,7 @@ public class NoteServiceImpl implements NoteService {
     public NoteResponse findNoteById(UUID noteId, String username) {
         log.info("Fetching note with id '{}' for user: '{}'", noteId, username);
 
-        final NoteEntity noteEntity = noteRepository.findById(noteId)
+        final NoteEntity noteEntity = noteRepository.findWithDetailsById(noteId)
                 .orElseThrow(() -> new NoteNotFoundException("Note not found with id: " + noteId));
 
         final boolean isOwner = noteEntity.getUser().getUsername().equals(username);
@@ -115,39 +276,156 @@ public class NoteServiceImpl implements NoteService {
         return note;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void exportNotes(String username, Consumer<NoteResponse> consumer) {
+        log.info("Exporting all notes for user '{}'", username);
+
+        // Ids are read from a database cursor and hydrated chunk by chunk: the persistence context
+        // is cleared after each chunk so memory does not grow with the number of notes
+        long exported = 0;
+        try (Stream<UUID> noteIds = noteRepository.streamVisibleIdsByUsername(username)) {
+            final Iterator<UUID> iterator = noteIds.iterator();
+            final List<UUID> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == EXPORT_CHUNK_SIZE || !iterator.hasNext()) {
+                    toResponses(chunk, username, NoteFields.FULL).forEach(consumer);
+                    exported += chunk.size();
+                    chunk.clear();
+                    entityManager.clear();
+                }
+            }
+        }
+
+        log.info("Exported {} notes for user '{}'", exported, username);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<String> findNoteETag(UUID noteId, String username) {
+        // Inaccessible or missing notes have no tag: the regular lookup reports the error
+        return noteRepository.findVersionById(noteId, username)
+                .filter(version -> version.isVisibleTo(username))
+                .map(version -> NoteETags.forNote(noteId, version, username));
+    }
+
     @Override
     @Transactional
     public NoteResponse updateNote(UUID noteId, UpdateNoteRequest request, String username) {
         log.info("Updating note with id '{}' for user: '{}'", noteId, username);
 
-        final NoteEntity note = noteRepository.findById(noteId)
-                .orElseThrow(() -> new NoteNotFoundException("Note not found with id: " + noteId));
+        return applyUpdate(findOwnedNoteForUpdate(noteId, username), request, username);
+    }
 
-        if (!note.getUser().getUsername().equals(username)) {
-            throw new NoteAccessDeniedException("Only the owner can update the note");
-        }
+    private NoteResponse applyUpdate(NoteEntity note, UpdateNoteRequest request, String username) {
+        final UUID noteId = note.getId();
+        final NoteRevisionState previous = revisionState(note);
 
         // Persists new tags (if any) before saving the note entity
-        final Set<TagEntity> tags = request.tags().stream()
-                .map(tagName -> tagRepository
-                        .findByName(tagName)
-                        .orElseGet(() -> tagRepository.saveAndFlush(new TagEntity(tagName))))
-                .collect(Collectors.toSet());
+        final Set<TagEntity> tags = tagRepository.findOrCreateAllByNameIn(request.tags());
+
+        // A tag-only change does not dirty the note row: the timestamp is touched so its version changes
+        if (!note.getTags().equals(tags)) {
+            note.setUpdatedAt(LocalDateTime.now());
+        }
         note.setTags(tags);
         note.setTitle(request.title());
         note.setContent(request.content());
 
         final NoteEntity updatedEntity = noteRepository.saveAndFlush(note);
 
-        log.debug("Synchronizing update to MongoDB note with id: '{}'", updatedEntity.getId());
-        final NoteDocument document = noteMapper.toDocument(updatedEntity);
-        final NoteDocument syncDocument = noteSearchRepository.save(document);
-        log.debug("Synchronized update to MongoDB note with id: '{}'", syncDocument.getId());
+        final NoteRevisionState current = revisionState(updatedEntity);
+        if (!current.equals(previous)) {
+            noteRevisionService.recordRevision(updatedEntity, previous, current);
+        }
+
+        // Only the fields actually changed are synced to the search index
+        noteIndexOutbox.patch(noteId, changedIndexFields(previous, current));
+
+        publishNoteChanged(updatedEntity);
 
         log.info("Updated note with id '{}' for user: '{}'", noteId, username);
         return noteMapper.toResponse(updatedEntity, username);
     }
 
+    @Override
+    @Transactional
+    public NoteResponse patchNote(UUID noteId, PatchNoteRequest request, String username) {
+        log.info("Patching note with id '{}' for user: '{}'", noteId, username);
+
+        final NoteEntity note = findOwnedNoteForUpdate(noteId, username);
+
+        final String title = request.title() != null && !request.title().equals(note.getTitle()) ? request.title() : null;
+        final String content = request.content() != null && !request.content().equals(note.getContent()) ? request.content() : null;
+
+        // Only the effective tag changes are kept (removals first, so a tag both removed and added stays)
+        final Set<String> currentTags = NoteMapper.mapTagsToNames(note.getTags());
+        final Set<String> removedTags = request.removeTags().stream()
+                .filter(currentTags::contains)
+                .filter(tagName -> !request.addTags().contains(tagName))
+                .collect(Collectors.toSet());
+        final Set<String> addedTags = request.addTags().stream()
+                .filter(tagName -> !currentTags.contains(tagName))
+                .collect(Collectors.toSet());
+
+        final NoteDocumentPatch patch = new NoteDocumentPatch(title, content, addedTags, removedTags);
+        if (patch.isEmpty()) {
+            log.info("No changes to apply to note with id '{}'", noteId);
+            return noteMapper.toResponse(note, username);
+        }
+
+        final NoteRevisionState previous = revisionState(note);
+
+        if (title != null) {
+            note.setTitle(title);
+        }
+        if (content != null) {
+            note.setContent(content);
+        }
+
+        // The managed tag collection is modified in place: only the changed note_tags rows are written
+        if (!removedTags.isEmpty() || !addedTags.isEmpty()) {
+            note.getTags().removeIf(tag -> removedTags.contains(tag.getName()));
+            note.getTags().addAll(tagRepository.findOrCreateAllByNameIn(addedTags));
+            note.setUpdatedAt(LocalDateTime.now());
+        }
+
+        final NoteEntity patchedNote = noteRepository.saveAndFlush(note);
+        noteRevisionService.recordRevision(patchedNote, previous, revisionState(patchedNote));
+
+        noteIndexOutbox.patch(noteId, patch.changedFields());
+
+        publishNoteChanged(patchedNote);
+
+        log.info("Patched note with id '{}' for user: '{}'", noteId, username);
+        return noteMapper.toResponse(patchedNote, username);
+    }
+
+    @Override
+    @Transactional
+    public NoteResponse restoreRevision(UUID noteId, int revision, String username) {
+        log.info("Restoring revision {} of note '{}' for user: '{}'", revision, noteId, username);
+
+        // Ownership is checked before the revision is rebuilt from its chain
+        final NoteEntity note = findOwnedNoteForUpdate(noteId, username);
+
+        // The restore is a regular update: it is recorded as a new revision
+        final NoteRevisionState state = noteRevisionService.findRevisionState(noteId, revision);
+        return applyUpdate(note, new UpdateNoteRequest(state.title(), state.content(), state.tags()), username);
+    }
+
+    private NoteEntity findOwnedNoteForUpdate(UUID noteId, String username) {
+        final NoteEntity note = noteRepository.findWithDetailsForUpdateById(noteId)
+                .orElseThrow(() -> new NoteNotFoundException("Note not found with id: " + noteId));
+
+        if (!note.getUser().getUsername().equals(username)) {
+            throw new NoteAccessDeniedException("Only the owner can update the note");
+        }
+        return note;
+    }
+
     @Override
     @Transactional
     public void deleteNote(UUID noteId, String username) {
@@ -160,12 +438,9 @@ public class NoteServiceImpl implements NoteService {
             throw new NoteAccessDeniedException("Only the owner can delete the note");
         }
 
+        final Set<String> readers = publishNoteChanged(note);
         noteRepository.delete(note);
-
-        log.debug("Synchronizing deletion to MongoDB note with id: '{}'", noteId);
-        noteSearchRepository.deleteById(noteId.toString());
-        log.debug("Synchronized deletion to MongoDB note with id: '{}'", noteId);
-
+        noteIndexOutbox.delete(noteId, readers);
 
         log.info("Deleted note with id '{}' for user: '{}'", noteId, username);
     }
@@ -175,7 +450,7 @@ public class NoteServiceImpl implements NoteService {
     public void shareNote(UUID noteId, ShareNoteRequest request, String ownerUsername) {
         log.info("Sharing note '{}' from user '{}' to: '{}'", noteId, ownerUsername, request.usernames());
 
-        final NoteEntity noteEntity = noteRepository.findById(noteId)
+        final NoteEntity noteEntity = noteRepository.findWithDetailsById(noteId)
                 .orElseThrow(() -> new NoteNotFoundException("Note not found with id: " + noteId));
 
         if (!noteEntity.getUser().getUsername().equals(ownerUsername)) {
@@ -183,57 +458,172 @@ public class NoteServiceImpl implements NoteService {
         }
 
         // Handling sharing during note (filtering out the current user if provided also as target and already shared ones)
-        request.usernames().stream()
+        final Set<String> alreadySharedUsernames = noteEntity.getShares().stream()
+                .map(share -> share.getSharedWithUser().getUsername())
+                .collect(Collectors.toSet());
+        final Set<String> targetUsernames = request.usernames().stream()
                 .filter(targetUser -> !ownerUsername.equals(targetUser))
-                .forEach(targetUsername -> {
-
-                    final UserEntity userToShareWith = userRepository.findByUsername(targetUsername)
-                            .orElseThrow(() -> new UserNotFoundException("User '" + targetUsername + "' not found for sharing"));
-
-                    final boolean alreadyShared = noteEntity.getShares().stream()
-                            .anyMatch(share -> share.getSharedWithUser().equals(userToShareWith));
+                .filter(targetUser -> !alreadySharedUsernames.contains(targetUser))
+                .collect(Collectors.toSet());
 
-                    if (!alreadyShared) {
-                        final NoteShare shareNote = new NoteShare(noteEntity, userToShareWith);
-                        noteEntity.getShares().add(shareNote);
-                    }
-                });
+        final List<UserEntity> newTargets = findShareTargets(targetUsernames);
+        newTargets.forEach(userToShareWith -> noteEntity.getShares().add(new NoteShare(noteEntity, userToShareWith)));
 
         noteRepository.saveAndFlush(noteEntity);
-        log.debug("Synchronizing share to MongoDB note with id: '{}'", noteEntity.getId());
-        final NoteDocument document = noteMapper.toDocument(noteEntity);
-        final NoteDocument syncDocument = noteSearchRepository.save(document);
-        log.debug("Synchronized share to MongoDB note with id: '{}'", syncDocument.getId());
+        if (!newTargets.isEmpty()) {
+            noteIndexOutbox.patch(noteId, Set.of(NoteDocument.SHARED_WITH_USERNAMES));
+        }
+
+        publishNoteChanged(noteEntity);
 
         log.info("Shared note '{}' from user '{}' to: '{}'", noteId, ownerUsername, request.usernames());
     }
 
+    // Served by the search index: Postgres is read only for the user's search version, outside of a transaction
     @Override
-    @Transactional(readOnly = true)
-    public List<NoteResponse> searchNotes(String text, Set<String> tags, String username) {
-        log.info("Searching notes by text: '{}', tags: {}, for user: '{}'", text, tags, username);
+    public NotePageResponse searchNotes(String text, Set<String> tags, String username, String cursor, int limit, NoteFields fields, boolean fuzzy) {
+        final int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        // Tag-only searches have no words to correct
+        final boolean isFuzzy = fuzzy && StringUtils.hasText(text);
+        return noteSearchCache.get(username, text, tags, cursor, pageSize, fields, isFuzzy,
+                () -> loadSearchPage(text, tags, username, cursor, pageSize, fields, isFuzzy));
+    }
+
+    private NotePageResponse loadSearchPage(String text, Set<String> tags, String username, String cursor, int pageSize, NoteFields fields,
+                                            boolean fuzzy) {
+        log.info("Searching notes by text: '{}' (fuzzy: {}), tags: {}, for user: '{}' after cursor: '{}'", text, fuzzy, tags, username, cursor);
 
-        // Searching is performed on MongoDB (results are ordered)
-        final List<NoteDocument> searchResults = noteSearchRepository.searchNotes(text, tags, username);
-        final List<UUID> noteIds = searchResults.stream()
-                .map(doc -> UUID.fromString(doc.getId()))
+        final boolean isTextSearch = StringUtils.hasText(text);
+        final NoteSearchCursor after = StringUtils.hasText(cursor) ? NoteSearchCursor.decode(cursor) : null;
+        if (after != null && after.isOffset() != isTextSearch) {
+            throw new InvalidCursorException("Search cursor does not match the search criteria: " + cursor);
+        }
+
+        // Searching and ranking are performed by the search index, one extra document tells whether a next page exists
+        final List<NoteDocument> searchResults = fuzzy
+                ? noteSearchRepository.fuzzySearchNotes(text, tags, username, after, pageSize + 1, fields.includesContent())
+                : noteSearchRepository.searchNotes(text, tags, username, after, pageSize + 1, fields.includesContent());
+        final boolean hasNext = searchResults.size() > pageSize;
+        final List<NoteDocument> currentPage = hasNext ? searchResults.subList(0, pageSize) : searchResults;
+
+        // Responses are built from the index documents, kept in sync with Postgres by the outbox indexer
+        final List<NoteResponse> matchNotes = currentPage.stream()
+                .map(document -> noteMapper.toResponse(document, username))
+                .map(fields::apply)
                 .toList();
 
+        String nextCursor = null;
+        if (hasNext) {
+            final int offset = after != null && after.isOffset() ? after.offset() : 0;
+            nextCursor = (isTextSearch ? NoteSearchCursor.ofOffset(offset + pageSize) : NoteSearchCursor.after(currentPage.getLast())).encode();
+        }
+
+        log.info("Found {} notes matching search criteria (next cursor: '{}').", matchNotes.size(), nextCursor);
+        return new NotePageResponse(matchNotes, matchNotes.size(), nextCursor);
+    }
+
+    // Counted by the search index over the tags of the matching notes, whatever the size of their contents
+    @Override
+    public TagFacetsResponse countTags(String text, Set<String> tags, String username, int limit) {
+        log.debug("Counting tags of the notes of user '{}' matching text: '{}', tags: {}", username, text, tags);
+        return new TagFacetsResponse(noteSearchRepository.countTags(text, tags, username, Math.clamp(limit, 1, MAX_PAGE_SIZE)));
+    }
+
+    // Served from memory: Postgres is read once per user, then only on note writes
+    @Override
+    public NoteSuggestionsResponse suggest(String prefix, String username, int limit) {
+        return noteSuggestions.suggest(username, prefix, Math.clamp(limit, 1, MAX_SUGGESTIONS));
+    }
+
+    private static NoteRevisionState revisionState(NoteEntity note) {
+        return new NoteRevisionState(note.getTitle(), note.getContent(), NoteMapper.mapTagsToNames(note.getTags()));
+    }
+
+    private static Set<String> changedIndexFields(NoteRevisionState previous, NoteRevisionState current) {
+        final Set<String> fields = new HashSet<>();
+        if (!Objects.equals(previous.title(), current.title())) {
+            fields.add(NoteDocument.TITLE);
+        }
+        if (!Objects.equals(previous.content(), current.content())) {
+            fields.add(NoteDocument.CONTENT);
+        }
+        if (!previous.tags().equals(current.tags())) {
+            fields.add(NoteDocument.TAGS);
+        }
+        return fields;
+    }
+
+    // Owner and sharers see the change: listeners (e.g. caches) are notified once the transaction commits
+    // Readers of the note, whose versions moved
+    private Set<String> publishNoteChanged(NoteEntity note) {
+        final Set<String> usernames = new HashSet<>();
+        usernames.add(note.getUser().getUsername());
+        note.getShares().forEach(share -> usernames.add(share.getSharedWithUser().getUsername()));
+
+        eventPublisher.publishEvent(new NoteChangedEvent(note.getId(), userNoteVersions.bump(usernames)));
+        return usernames;
+    }
+
+    // Builds the responses preserving the given order (map acts as intermediate bucket)
+    private List<NoteResponse> toResponses(List<UUID> noteIds, String username, NoteFields fields) {
         if (noteIds.isEmpty()) return List.of();
 
-        // IDs found on MongoDB are used to query relational database
-        final Map<UUID, NoteEntity> notesMap = noteRepository.findAllById(noteIds).stream()
-                .collect(Collectors.toMap(NoteEntity::getId, Function.identity()));
+        final Map<UUID, NoteResponse> responses = fields.includesContent()
+                ? loadFullResponses(noteIds, username)
+                : loadSummaryResponses(noteIds, username, fields);
 
-        // Preserve MongoDB query result order (map acts as intermediate bucket)
-        final List<NoteResponse> matchNotes = noteIds.stream()
-                .map(notesMap::get)
+        return noteIds.stream()
+                .map(responses::get)
                 .filter(Objects::nonNull)
-                .map(note -> noteMapper.toResponse(note, username))
+                .map(fields::apply)
                 .toList();
+    }
+
+    // Entities with owner and shares initialized by a constant number of queries, tag names from the dictionary
+    private Map<UUID, NoteResponse> loadFullResponses(List<UUID> noteIds, String username) {
+        final List<NoteEntity> notes = noteRepository.findAllWithUserByIdIn(noteIds);
+        noteRepository.findAllWithSharesByIdIn(noteIds);
+        final Map<UUID, Set<String>> tagsByNote = findTagNamesByNote(noteIds);
+
+        return notes.stream()
+                .collect(Collectors.toMap(NoteEntity::getId, note -> noteMapper.toResponse(
+                        note,
+                        tagsByNote.getOrDefault(note.getId(), Set.of()),
+                        username)));
+    }
+
+    // DTO projections that never read the content column (collections are queried only if requested)
+    private Map<UUID, NoteResponse> loadSummaryResponses(List<UUID> noteIds, String username, NoteFields fields) {
+        final Map<UUID, Set<String>> tagsByNote = fields.includesTags()
+                ? findTagNamesByNote(noteIds)
+                : Map.of();
+        final Map<UUID, Set<String>> sharesByNote = fields.includesSharing()
+                ? groupByNote(noteRepository.findSharedUsernamesByNoteIdIn(noteIds))
+                : Map.of();
+
+        return noteRepository.findSummariesByIdIn(noteIds).stream()
+                .collect(Collectors.toMap(NoteSummary::id, summary -> noteMapper.toResponse(
+                        summary,
+                        tagsByNote.getOrDefault(summary.id(), Set.of()),
+                        sharesByNote.getOrDefault(summary.id(), Set.of()),
+                        username)));
+    }
+
+    private Map<UUID, Set<String>> findTagNamesByNote(List<UUID> noteIds) {
+        final List<NoteTagId> noteTags = noteRepository.findTagIdsByNoteIdIn(noteIds);
+        final Map<Integer, String> tagNames = tagDictionary.namesOf(noteTags.stream()
+                .map(NoteTagId::tagId)
+                .collect(Collectors.toSet()));
+
+        return noteTags.stream()
+                .collect(Collectors.groupingBy(NoteTagId::noteId,
+                        Collectors.mapping(noteTag -> tagNames.get(noteTag.tagId()), Collectors.toSet())));
+    }
 
-        log.info("Found {} notes matching search criteria.", matchNotes.size());
-        return matchNotes;
+    private static Map<UUID, Set<String>> groupByNote(List<NoteAttribute> attributes) {
+        return attributes.stream()
+                .collect(Collectors.groupingBy(NoteAttribute::noteId,
+                        Collectors.mapping(NoteAttribute::value, Collectors.toSet())));
     }
 
-}
\ No newline at end of file
+}
@@ -17,6 +17,9 @@ import java.util.UUID;
 @Table(name = "note_shares", uniqueConstraints = {
         // Avoid sharing note with same user
         @UniqueConstraint(columnNames = {"note_id", "shared_with_user_id"})
+}, indexes = {
+        // Lookup of the notes shared with a user
+        @Index(name = "idx_note_shares_shared_with_user", columnList = "shared_with_user_id, note_id")
 })
 public class NoteShare {
 
@@ -0,0 +1,197 @@
+package com.dipa.notefournote.notes;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Autocomplete of tags and titles over the notes visible to each user: a prefix tree per user, loaded from Postgres
+ * on the first request and then kept up to date note by note, so keystrokes only read the version of the user's notes.
+ */
+@Slf4j
+@Component
+public class NoteSuggestions {
+
+    private static final String CACHE_NAME = "notes.suggestions";
+    // Longer keys (and prefixes) are cut: a title is reachable from the start of any of its words
+    private static final int MAX_KEY_LENGTH = 40;
+    // Rough size of a tree node, only used to weigh the entries
+    private static final int NODE_BYTES = 120;
+
+    private final NoteRepository noteRepository;
+    private final TagDictionary tagDictionary;
+    private final UserNoteVersions userNoteVersions;
+    private final Cache<String, UserSuggestions> cache;
+
+    public NoteSuggestions(NoteRepository noteRepository,
+                           TagDictionary tagDictionary,
+                           UserNoteVersions userNoteVersions,
+                           MeterRegistry meterRegistry,
+                           @Value("${notes.suggestions.max-weight-bytes:33554432}") long maxWeightBytes,
+                           @Value("${notes.suggestions.expire-after-access:30m}") Duration expireAfterAccess) {
+
+        this.noteRepository = noteRepository;
+        this.tagDictionary = tagDictionary;
+        this.userNoteVersions = userNoteVersions;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((String username, UserSuggestions suggestions) -> suggestions.weight())
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public NoteSuggestionsResponse suggest(String username, String prefix, int limit) {
+        final String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return new NoteSuggestionsResponse(List.of(), List.of());
+        }
+        return suggestionsOf(username).find(key, limit);
+    }
+
+    // Applied after the commit to the users already loaded, when the entry is exactly one write behind: the others
+    // (and the users changed by a write on another instance) load the committed state on their next request
+    @TransactionalEventListener
+    public void onNoteChanged(NoteChangedEvent event) {
+        final Map<String, UserSuggestions> loaded = cache.getAllPresent(event.usernames());
+        if (loaded.isEmpty()) {
+            return;
+        }
+        if (event.noteId() == null) {
+            cache.invalidateAll(loaded.keySet());
+            return;
+        }
+
+        try {
+            final NoteTerms terms = loadTerms(event.noteId());
+            loaded.forEach((username, suggestions) -> {
+                final long version = event.versions().get(username);
+                if (suggestions.version() != version - 1) {
+                    cache.invalidate(username);
+                    return;
+                }
+                suggestions.apply(event.noteId(), terms != null && terms.readers().contains(username) ? terms : null, version);
+                // Weighed again after the change
+                cache.asMap().replace(username, suggestions, suggestions);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to update the suggestions of note '{}', reloading them on the next request", event.noteId(), e);
+            cache.invalidateAll(loaded.keySet());
+        }
+    }
+
+    // An entry that missed a committed write (e.g. loaded while it committed) is loaded again
+    private UserSuggestions suggestionsOf(String username) {
+        final UserSuggestions cached = cache.getIfPresent(username);
+        if (cached != null && cached.version() == userNoteVersions.current(username)) {
+            return cached;
+        }
+
+        final UserSuggestions loaded = load(username);
+        cache.put(username, loaded);
+        return loaded;
+    }
+
+    private UserSuggestions load(String username) {
+        final long version = userNoteVersions.current(username);
+        final List<NoteAttribute> titles = noteRepository.findVisibleTitlesByUsername(username);
+        final List<NoteTagId> noteTags = noteRepository.findVisibleTagIdsByUsername(username);
+        final Map<Integer, String> tagNames = tagDictionary.namesOf(noteTags.stream().map(NoteTagId::tagId).collect(Collectors.toSet()));
+        final Map<UUID, Set<String>> tagsByNote = noteTags.stream()
+                .collect(Collectors.groupingBy(NoteTagId::noteId, Collectors.mapping(noteTag -> tagNames.get(noteTag.tagId()), Collectors.toSet())));
+
+        final UserSuggestions suggestions = new UserSuggestions(version);
+        titles.forEach(title -> suggestions.apply(title.noteId(),
+                new NoteTerms(title.value(), tagsByNote.getOrDefault(title.noteId(), Set.of()), Set.of(username)), version));
+        log.debug("Loaded the suggestions of user '{}' from {} notes", username, titles.size());
+        return suggestions;
+    }
+
+    // Current title, tags and readers of a note (null once deleted)
+    private NoteTerms loadTerms(UUID noteId) {
+        final List<NoteSummary> summaries = noteRepository.findSummariesByIdIn(List.of(noteId));
+        if (summaries.isEmpty()) {
+            return null;
+        }
+
+        final List<NoteTagId> noteTags = noteRepository.findTagIdsByNoteIdIn(List.of(noteId));
+        final Set<String> tags = new HashSet<>(tagDictionary.namesOf(noteTags.stream().map(NoteTagId::tagId).toList()).values());
+        final Set<String> readers = new HashSet<>();
+        readers.add(summaries.getFirst().ownerUsername());
+        noteRepository.findSharedUsernamesByNoteIdIn(List.of(noteId)).forEach(share -> readers.add(share.value()));
+        return new NoteTerms(summaries.getFirst().title(), tags, readers);
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        final String key = text.strip().toLowerCase(Locale.ROOT);
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+    }
+
+    // Keys of a title: the title itself and every suffix starting at a word
+    private static List<String> titleKeys(String title) {
+        final String text = title.strip().toLowerCase(Locale.ROOT);
+        final List<String> keys = new ArrayList<>();
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i)) && (i == 0 || Character.isWhitespace(text.charAt(i - 1)))) {
+                keys.add(normalize(text.substring(i)));
+            }
+        }
+        return keys;
+    }
+
+    private record NoteTerms(String title, Set<String> tags, Set<String> readers) {}
+
+    private static final class UserSuggestions {
+
+        private final SuggestionTrie tags = new SuggestionTrie();
+        private final SuggestionTrie titles = new SuggestionTrie();
+        private final Map<UUID, NoteTerms> notes = new HashMap<>();
+        private long version;
+
+        private UserSuggestions(long version) {
+            this.version = version;
+        }
+
+        // Replaces the terms of a note (null removes it)
+        private synchronized void apply(UUID noteId, NoteTerms terms, long currentVersion) {
+            final NoteTerms previous = terms != null ? notes.put(noteId, terms) : notes.remove(noteId);
+            if (previous != null) {
+                previous.tags().forEach(tag -> tags.remove(normalize(tag), tag));
+                titleKeys(previous.title()).forEach(key -> titles.remove(key, previous.title()));
+            }
+            if (terms != null) {
+                terms.tags().forEach(tag -> tags.add(normalize(tag), tag));
+                titleKeys(terms.title()).forEach(key -> titles.add(key, terms.title()));
+            }
+            version = currentVersion;
+        }
+
+        private synchronized NoteSuggestionsResponse find(String prefix, int limit) {
+            return new NoteSuggestionsResponse(tags.find(prefix, limit), titles.find(prefix, limit));
+        }
+
+        private synchronized long version() {
+            return version;
+        }
+
+        private synchronized int weight() {
+            return (int) Math.min(Integer.MAX_VALUE, (long) (tags.nodeCount() + titles.nodeCount()) * NODE_BYTES);
+        }
+
+    }
+
+}
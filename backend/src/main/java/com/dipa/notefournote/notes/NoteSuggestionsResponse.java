@@ -0,0 +1,8 @@
+package com.dipa.notefournote.notes;
+
+import java.util.List;
+
+public record NoteSuggestionsResponse(
+        List<String> tags,
+        List<String> titles
+) {}
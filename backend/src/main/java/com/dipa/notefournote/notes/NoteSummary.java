@@ -0,0 +1,13 @@
+package com.dipa.notefournote.notes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Note columns projected without the content LOB
+public record NoteSummary(
+        UUID id,
+        String title,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        String ownerUsername
+) {}
@@ -0,0 +1,6 @@
+package com.dipa.notefournote.notes;
+
+import java.util.UUID;
+
+// Row of note_tags: tag names are resolved through the TagDictionary
+public record NoteTagId(UUID noteId, Integer tagId) {}
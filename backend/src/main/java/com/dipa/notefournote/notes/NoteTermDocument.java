@@ -0,0 +1,29 @@
+package com.dipa.notefournote.notes;
+
+import jakarta.persistence.Id;
+import lombok.Data;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.List;
+
+// Vocabulary of the indexed words (titles, contents, tags) looked up by trigrams for the fuzzy search
+@Data
+@Document(collection = "notes_terms")
+@CompoundIndex(name = "grams_length", def = "{'grams': 1, 'length': 1}")
+public class NoteTermDocument {
+
+    public static final String GRAMS = "grams";
+    public static final String LENGTH = "length";
+
+    @Id
+    private String term;
+
+    @Field
+    private List<String> grams;
+
+    @Field
+    private int length;
+
+}
@@ -0,0 +1,18 @@
+package com.dipa.notefournote.notes;
+
+import java.time.LocalDateTime;
+
+// Columns a note representation depends on, read without loading the note itself
+public record NoteVersion(
+        LocalDateTime updatedAt,
+        String ownerUsername,
+        Long shareCount,
+        LocalDateTime lastSharedAt,
+        Long viewerShareCount
+) {
+
+    public boolean isVisibleTo(String username) {
+        return ownerUsername.equals(username) || viewerShareCount > 0;
+    }
+
+}
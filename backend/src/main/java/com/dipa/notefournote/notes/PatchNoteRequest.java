@@ -0,0 +1,44 @@
+package com.dipa.notefournote.notes;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Missing fields are left unchanged; removed tags are applied before the added ones
+public record PatchNoteRequest(
+        @Pattern(regexp = "(?s).*\\S.*", message = "Il titolo non può essere vuoto.")
+        @Size(max = 100, message = "Il titolo non può superare i 100 caratteri.")
+        String title,
+
+        @Pattern(regexp = "(?s).*\\S.*", message = "Il contenuto non può essere vuoto.")
+        @Size(min = 10, message = "Il contenuto non può essere inferiore a 10 caratteri.")
+        String content,
+
+        Set<String> addTags,
+        Set<String> removeTags
+) {
+    public PatchNoteRequest {
+
+        addTags = normalizeTags(addTags);
+        removeTags = normalizeTags(removeTags);
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "Indicare almeno una modifica da applicare alla nota.")
+    public boolean isNotEmpty() {
+        return title != null || content != null || !addTags.isEmpty() || !removeTags.isEmpty();
+    }
+
+    private static Set<String> normalizeTags(Set<String> tags) {
+        return tags == null
+                ? Set.of()
+                : tags.stream()
+                .map(String::trim)
+                .map(String::toUpperCase)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,93 @@
+package com.dipa.notefournote.notes;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Prefix tree of lowercase keys, each leading to the values it was added with (counted: the same value may come from many notes).
+ * Not thread-safe: guarded by its owner.
+ */
+final class SuggestionTrie {
+
+    private final Node root = new Node();
+    private int nodes = 1;
+
+    void add(String key, String value) {
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.child(key.charAt(i), this);
+        }
+        node.values.merge(value, 1, Integer::sum);
+    }
+
+    void remove(String key, String value) {
+        remove(root, key, 0, value);
+    }
+
+    // Shortest completions first, alphabetical among the same length
+    List<String> find(String prefix, int limit) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+
+        final Set<String> found = new LinkedHashSet<>();
+        final Queue<Node> pending = new ArrayDeque<>();
+        pending.add(node);
+        while (!pending.isEmpty() && found.size() < limit) {
+            final Node current = pending.remove();
+            for (String value : new TreeMap<>(current.values).keySet()) {
+                found.add(value);
+                if (found.size() == limit) {
+                    break;
+                }
+            }
+            pending.addAll(current.children.values());
+        }
+        return new ArrayList<>(found);
+    }
+
+    int nodeCount() {
+        return nodes;
+    }
+
+    // Returns whether the node is left empty, so that the parent drops it
+    private boolean remove(Node node, String key, int depth, String value) {
+        if (depth == key.length()) {
+            node.values.computeIfPresent(value, (ignored, count) -> count > 1 ? count - 1 : null);
+        } else {
+            final char c = key.charAt(depth);
+            final Node child = node.children.get(c);
+            if (child != null && remove(child, key, depth + 1, value)) {
+                node.children.remove(c);
+                nodes--;
+            }
+        }
+        return node.values.isEmpty() && node.children.isEmpty();
+    }
+
+    private static final class Node {
+
+        private final Map<Character, Node> children = new TreeMap<>();
+        private final Map<String, Integer> values = new HashMap<>(2);
+
+        private Node child(char c, SuggestionTrie trie) {
+            return children.computeIfAbsent(c, ignored -> {
+                trie.nodes++;
+                return new Node();
+            });
+        }
+
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.dipa.notefournote.notes;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-process name/id dictionary of the tag vocabulary, loaded at startup and extended when new tags are committed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TagDictionary {
+
+    private final EntityManager entityManager;
+
+    private final ConcurrentMap<String, Integer> idsByName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, String> namesById = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        register(entityManager.createQuery("select t from TagEntity t", TagEntity.class).getResultList());
+        log.info("Loaded {} tags into the tag dictionary", idsByName.size());
+    }
+
+    public Integer idOf(String name) {
+        return idsByName.get(name);
+    }
+
+    // Ids unknown to this instance (e.g. tags created by another instance) are read from the database
+    public Map<Integer, String> namesOf(Collection<Integer> ids) {
+        final Map<Integer, String> names = new HashMap<>();
+        final List<Integer> unknownIds = new ArrayList<>();
+        for (Integer id : ids) {
+            final String name = namesById.get(id);
+            if (name != null) {
+                names.put(id, name);
+            } else {
+                unknownIds.add(id);
+            }
+        }
+
+        if (!unknownIds.isEmpty()) {
+            final List<TagEntity> tags = entityManager.createQuery("select t from TagEntity t where t.id in :ids", TagEntity.class)
+                    .setParameter("ids", unknownIds)
+                    .getResultList();
+            tags.forEach(tag -> names.put(tag.getId(), tag.getName()));
+            registerAfterCommit(tags);
+        }
+
+        return names;
+    }
+
+    // Tags read or inserted by a transaction are shared with the other requests only once it commits
+    public void registerAfterCommit(Collection<TagEntity> tags) {
+        if (tags.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            register(tags);
+            return;
+        }
+
+        final List<TagEntity> pending = List.copyOf(tags);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                register(pending);
+            }
+        });
+    }
+
+    private void register(Collection<TagEntity> tags) {
+        tags.forEach(tag -> {
+            idsByName.put(tag.getName(), tag.getId());
+            namesById.put(tag.getId(), tag.getName());
+        });
+    }
+
+}
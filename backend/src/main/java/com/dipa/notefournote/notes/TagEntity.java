@@ -1,33 +1,38 @@
 package com.dipa.notefournote.notes;
 
 import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.util.HashSet;
 import java.util.Set;
-import java.util.UUID;
 
 @Getter
 @Setter
 @NoArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @Entity
 @Table(name = "tags")
 public class TagEntity {
 
+    // Compact surrogate key: it is repeated in every row (and index entry) of note_tags
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    private UUID id;
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
 
+    // Natural key: instances built from the TagDictionary and managed ones compare equal
+    @EqualsAndHashCode.Include
     @Column(nullable = false, unique = true)
     private String name;
 
     @ManyToMany(mappedBy = "tags")
     private Set<NoteEntity> notes = new HashSet<>();
 
-    public TagEntity(String name) {
+    public TagEntity(Integer id, String name) {
+        this.id = id;
         this.name = name;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,3 @@
+package com.dipa.notefournote.notes;
+
+public record TagFacet(String tag, long count) {}
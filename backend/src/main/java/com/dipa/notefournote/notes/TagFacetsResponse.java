@@ -0,0 +1,7 @@
+package com.dipa.notefournote.notes;
+
+import java.util.List;
+
+public record TagFacetsResponse(
+        List<TagFacet> tags
+) {}
@@ -3,12 +3,6 @@ package com.dipa.notefournote.notes;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.Optional;
-import java.util.UUID;
-
 @Repository
-public interface TagRepository extends JpaRepository<TagEntity, UUID> {
-
-    Optional<TagEntity> findByName(String name);
-
-}
\ No newline at end of file
+public interface TagRepository extends JpaRepository<TagEntity, Integer>, CustomTagRepository {
+}
@@ -0,0 +1,4 @@
+package com.dipa.notefournote.notes;
+
+// Version of a user's visible notes after a bump
+public record UserNoteVersion(String username, Long version) {}
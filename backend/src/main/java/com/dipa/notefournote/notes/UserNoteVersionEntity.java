@@ -0,0 +1,31 @@
+package com.dipa.notefournote.notes;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+
+// Written only through the upserts of UserNoteVersionRepository: one row per user whose visible notes or search results ever changed
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "user_note_versions")
+public class UserNoteVersionEntity {
+
+    @Id
+    private String username;
+
+    @Column(name = "notes_version", nullable = false)
+    private long notesVersion;
+
+    // Bumped by the indexer once the user's search results changed in the index; the default fills the existing rows
+    @ColumnDefault("0")
+    @Column(name = "search_version", nullable = false)
+    private long searchVersion;
+
+}
@@ -0,0 +1,42 @@
+package com.dipa.notefournote.notes;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserNoteVersionRepository extends JpaRepository<UserNoteVersionEntity, String> {
+
+    @Query("select v.notesVersion from UserNoteVersionEntity v where v.username = :username")
+    Optional<Long> findNotesVersion(String username);
+
+    @Query("select v.searchVersion from UserNoteVersionEntity v where v.username = :username")
+    Optional<Long> findSearchVersion(String username);
+
+    // Rows are locked in username order: concurrent writes sharing some users cannot deadlock
+    @Query(nativeQuery = true, value = """
+            insert into user_note_versions (username, notes_version)
+            select u.username, 1 from users u
+            where u.username in (:usernames)
+            order by u.username
+            on conflict (username) do update set notes_version = user_note_versions.notes_version + 1
+            returning username, notes_version as version
+            """)
+    List<UserNoteVersion> bumpNotesVersions(Collection<String> usernames);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            insert into user_note_versions (username, notes_version, search_version)
+            select u.username, 0, 1 from users u
+            where u.username in (:usernames)
+            order by u.username
+            on conflict (username) do update set search_version = user_note_versions.search_version + 1
+            """)
+    void bumpSearchVersions(Collection<String> usernames);
+
+}
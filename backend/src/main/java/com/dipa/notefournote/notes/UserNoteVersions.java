@@ -0,0 +1,49 @@
+package com.dipa.notefournote.notes;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Per-user counters of note writes, used to stamp cache keys so that stale entries become unreachable. They live in
+ * Postgres and are bumped in the transaction of the write: every instance reads the same versions, and a version
+ * read after a commit is never older than it. Search versions are bumped by the indexer instead, once a change reached
+ * the search index: until then searches still return the previous results.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserNoteVersions {
+
+    private final UserNoteVersionRepository userNoteVersionRepository;
+
+    public long current(String username) {
+        return userNoteVersionRepository.findNotesVersion(username).orElse(0L);
+    }
+
+    public long currentSearch(String username) {
+        return userNoteVersionRepository.findSearchVersion(username).orElse(0L);
+    }
+
+    // New version of each user
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<String, Long> bump(Collection<String> usernames) {
+        if (usernames.isEmpty()) {
+            return Map.of();
+        }
+        return userNoteVersionRepository.bumpNotesVersions(usernames).stream()
+                .collect(Collectors.toMap(UserNoteVersion::username, UserNoteVersion::version));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bumpSearch(Collection<String> usernames) {
+        if (!usernames.isEmpty()) {
+            userNoteVersionRepository.bumpSearchVersions(usernames);
+        }
+    }
+
+}
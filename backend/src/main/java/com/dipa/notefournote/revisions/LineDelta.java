@@ -0,0 +1,67 @@
+package com.dipa.notefournote.revisions;
+
+import com.github.difflib.DiffUtils;
+import com.github.difflib.UnifiedDiffUtils;
+import com.github.difflib.patch.AbstractDelta;
+import com.github.difflib.patch.Patch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Line based delta between two contents: each change is a "position,removed,added" header followed by the added lines.
+ */
+final class LineDelta {
+
+    private LineDelta() {}
+
+    static String encode(String source, String target) {
+        final Patch<String> patch = DiffUtils.diff(lines(source), lines(target));
+
+        final StringBuilder delta = new StringBuilder();
+        for (AbstractDelta<String> change : patch.getDeltas()) {
+            delta.append(change.getSource().getPosition()).append(',')
+                 .append(change.getSource().size()).append(',')
+                 .append(change.getTarget().size()).append('\n');
+            change.getTarget().getLines().forEach(line -> delta.append(line).append('\n'));
+        }
+        return delta.toString();
+    }
+
+    static String apply(String source, String delta) {
+        final List<String> sourceLines = lines(source);
+        final String[] deltaLines = delta.split("\n", -1);
+
+        final List<String> result = new ArrayList<>(sourceLines.size());
+        int copied = 0;
+        int index = 0;
+        while (index < deltaLines.length && !deltaLines[index].isEmpty()) {
+            final String[] header = deltaLines[index++].split(",");
+            final int position = Integer.parseInt(header[0]);
+            final int removed = Integer.parseInt(header[1]);
+            final int added = Integer.parseInt(header[2]);
+
+            result.addAll(sourceLines.subList(copied, position));
+            result.addAll(Arrays.asList(deltaLines).subList(index, index + added));
+            copied = position + removed;
+            index += added;
+        }
+        result.addAll(sourceLines.subList(copied, sourceLines.size()));
+
+        return String.join("\n", result);
+    }
+
+    static String unifiedDiff(String source, String target, int fromRevision, int toRevision) {
+        final List<String> sourceLines = lines(source);
+        final Patch<String> patch = DiffUtils.diff(sourceLines, lines(target));
+        return String.join("\n", UnifiedDiffUtils.generateUnifiedDiff(
+                "revision " + fromRevision, "revision " + toRevision, sourceLines, patch, 3));
+    }
+
+    // The trailing empty line is kept so that joining the lines gives back the exact content
+    private static List<String> lines(String content) {
+        return Arrays.asList(content.split("\n", -1));
+    }
+
+}
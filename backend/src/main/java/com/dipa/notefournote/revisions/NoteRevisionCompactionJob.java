@@ -0,0 +1,47 @@
+package com.dipa.notefournote.revisions;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Component
+public class NoteRevisionCompactionJob {
+
+    private final NoteRevisionRepository noteRevisionRepository;
+    private final NoteRevisionService noteRevisionService;
+    private final int maxRevisionsPerNote;
+    private final Duration maxAge;
+
+    public NoteRevisionCompactionJob(NoteRevisionRepository noteRevisionRepository,
+                                     NoteRevisionService noteRevisionService,
+                                     @Value("${notes.revisions.max-per-note:50}") int maxRevisionsPerNote,
+                                     @Value("${notes.revisions.max-age:180d}") Duration maxAge) {
+        this.noteRevisionRepository = noteRevisionRepository;
+        this.noteRevisionService = noteRevisionService;
+        this.maxRevisionsPerNote = maxRevisionsPerNote;
+        this.maxAge = maxAge;
+    }
+
+    // Each note is compacted in its own transaction
+    @Scheduled(cron = "${notes.revisions.compaction-cron:0 30 3 * * *}")
+    public void compact() {
+        final List<UUID> noteIds = noteRevisionRepository.findNoteIdsToCompact(maxRevisionsPerNote, LocalDateTime.now().minus(maxAge));
+        log.info("Compacting the revisions of {} notes", noteIds.size());
+
+        noteIds.forEach(noteId -> {
+            try {
+                noteRevisionService.compactRevisions(noteId);
+            } catch (RuntimeException e) {
+                log.error("Failed to compact the revisions of note '{}'", noteId, e);
+            }
+        });
+    }
+
+}
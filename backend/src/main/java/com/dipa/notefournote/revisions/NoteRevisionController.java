@@ -0,0 +1,111 @@
+package com.dipa.notefournote.revisions;
+
+import com.dipa.notefournote.notes.NoteResponse;
+import com.dipa.notefournote.notes.NoteService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/notes/{noteId}/revisions")
+@RequiredArgsConstructor
+@Tag(name = "3. Note Revisions", description = "API per la cronologia delle revisioni delle note")
+@SecurityRequirement(name = "bearerAuth")
+public class NoteRevisionController {
+
+    private final NoteRevisionService noteRevisionService;
+    private final NoteService noteService;
+
+    @Operation(summary = "Elenca le revisioni di una nota", description = "Restituisce le revisioni della nota, dalla più recente. La cronologia inizia alla prima modifica della nota.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Revisioni trovate"),
+            @ApiResponse(responseCode = "403", description = "Accesso non autorizzato"),
+            @ApiResponse(responseCode = "404", description = "Nota non trovata")
+    })
+    @GetMapping
+    public ResponseEntity<List<NoteRevisionSummary>> getRevisions(@Parameter(description = "ID della nota") @PathVariable UUID noteId,
+                                                                  Authentication authentication) {
+
+        final String username = authentication.getName();
+        log.debug("Received request to list revisions of note '{}' from user: '{}'", noteId, username);
+
+        final List<NoteRevisionSummary> revisions = noteRevisionService.findRevisions(noteId, username);
+
+        log.debug("Returning {} revisions of note '{}' to user: '{}'", revisions.size(), noteId, username);
+        return ResponseEntity.ok(revisions);
+    }
+
+    @Operation(summary = "Trova una revisione di una nota")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Revisione trovata"),
+            @ApiResponse(responseCode = "403", description = "Accesso non autorizzato"),
+            @ApiResponse(responseCode = "404", description = "Nota o revisione non trovata")
+    })
+    @GetMapping("/{revision}")
+    public ResponseEntity<NoteRevisionResponse> getRevision(@Parameter(description = "ID della nota") @PathVariable UUID noteId,
+                                                            @Parameter(description = "Numero della revisione") @PathVariable int revision,
+                                                            Authentication authentication) {
+
+        final String username = authentication.getName();
+        log.debug("Received request to get revision {} of note '{}' from user: '{}'", revision, noteId, username);
+
+        final NoteRevisionResponse noteRevision = noteRevisionService.findRevision(noteId, revision, username);
+
+        log.debug("Returning revision {} of note '{}' to user: '{}'", revision, noteId, username);
+        return ResponseEntity.ok(noteRevision);
+    }
+
+    @Operation(summary = "Confronta due revisioni di una nota", description = "Restituisce le differenze del contenuto in formato unified diff e, se cambiato, il titolo delle due revisioni.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Confronto eseguito"),
+            @ApiResponse(responseCode = "403", description = "Accesso non autorizzato"),
+            @ApiResponse(responseCode = "404", description = "Nota o revisione non trovata")
+    })
+    @GetMapping("/diff")
+    public ResponseEntity<NoteRevisionDiff> diffRevisions(@Parameter(description = "ID della nota") @PathVariable UUID noteId,
+                                                          @Parameter(description = "Revisione di partenza") @RequestParam int from,
+                                                          @Parameter(description = "Revisione di arrivo") @RequestParam int to,
+                                                          Authentication authentication) {
+
+        final String username = authentication.getName();
+        log.debug("Received request to diff revisions {} and {} of note '{}' from user: '{}'", from, to, noteId, username);
+
+        final NoteRevisionDiff diff = noteRevisionService.diffRevisions(noteId, from, to, username);
+
+        log.debug("Returning diff of revisions {} and {} of note '{}' to user: '{}'", from, to, noteId, username);
+        return ResponseEntity.ok(diff);
+    }
+
+    @Operation(summary = "Ripristina una revisione di una nota", description = "Riporta la nota allo stato della revisione indicata, registrando una nuova revisione. Solo il proprietario può ripristinare.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Revisione ripristinata"),
+            @ApiResponse(responseCode = "403", description = "Accesso non autorizzato (solo il proprietario può ripristinare)"),
+            @ApiResponse(responseCode = "404", description = "Nota o revisione non trovata")
+    })
+    @PostMapping("/{revision}/restore")
+    public ResponseEntity<NoteResponse> restoreRevision(@Parameter(description = "ID della nota") @PathVariable UUID noteId,
+                                                        @Parameter(description = "Numero della revisione") @PathVariable int revision,
+                                                        Authentication authentication) {
+
+        final String username = authentication.getName();
+        log.debug("Received request to restore revision {} of note '{}' from user: '{}'", revision, noteId, username);
+
+        final NoteResponse restoredNote = noteService.restoreRevision(noteId, revision, username);
+
+        log.debug("Restored revision {} of note '{}' for user: '{}'", revision, noteId, username);
+        return ResponseEntity.ok(restoredNote);
+    }
+
+}
@@ -0,0 +1,4 @@
+package com.dipa.notefournote.revisions;
+
+// Unified diff of the content (title is null when unchanged)
+public record NoteRevisionDiff(int fromRevision, int toRevision, String fromTitle, String toTitle, String diff) {}
@@ -0,0 +1,62 @@
+package com.dipa.notefournote.revisions;
+
+import com.dipa.notefournote.notes.NoteContentConverter;
+import com.dipa.notefournote.notes.NoteEntity;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.Length;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "note_revisions", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"note_id", "revision"})
+})
+public class NoteRevisionEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    // Revisions are removed by the database together with their note
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "note_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private NoteEntity note;
+
+    @Column(nullable = false)
+    private int revision;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private RevisionKind kind;
+
+    @Column(nullable = false)
+    private String title;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(nullable = false)
+    private List<String> tags;
+
+    // Full content for snapshots, line delta from the previous revision otherwise
+    @Convert(converter = NoteContentConverter.class)
+    @Column(nullable = false, length = Length.LONG32)
+    private String payload;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+}
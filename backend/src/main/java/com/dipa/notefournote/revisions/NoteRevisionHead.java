@@ -0,0 +1,4 @@
+package com.dipa.notefournote.revisions;
+
+// Latest revision and latest snapshot of a note (both null when the note has no history)
+public record NoteRevisionHead(Integer latestRevision, Integer latestSnapshot) {}
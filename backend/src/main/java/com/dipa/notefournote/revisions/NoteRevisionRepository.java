@@ -0,0 +1,58 @@
+package com.dipa.notefournote.revisions;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface NoteRevisionRepository extends JpaRepository<NoteRevisionEntity, UUID> {
+
+    @Query("""
+            select new com.dipa.notefournote.revisions.NoteRevisionHead(
+                max(r.revision),
+                max(case when r.kind = com.dipa.notefournote.revisions.RevisionKind.SNAPSHOT then r.revision end))
+            from NoteRevisionEntity r
+            where r.note.id = :noteId
+            """)
+    NoteRevisionHead findHead(UUID noteId);
+
+    @Query("""
+            select new com.dipa.notefournote.revisions.NoteRevisionSummary(r.revision, r.title, r.tags, r.createdAt)
+            from NoteRevisionEntity r
+            where r.note.id = :noteId
+            order by r.revision desc
+            """)
+    List<NoteRevisionSummary> findSummariesByNoteId(UUID noteId);
+
+    Optional<NoteRevisionEntity> findByNote_IdAndRevision(UUID noteId, int revision);
+
+    // Revisions needed to rebuild the given one: the closest snapshot and the deltas that follow it
+    @Query("""
+            select r from NoteRevisionEntity r
+            where r.note.id = :noteId
+              and r.revision <= :revision
+              and r.revision >= (
+                  select max(s.revision) from NoteRevisionEntity s
+                  where s.note.id = :noteId
+                    and s.kind = com.dipa.notefournote.revisions.RevisionKind.SNAPSHOT
+                    and s.revision <= :revision)
+            order by r.revision
+            """)
+    List<NoteRevisionEntity> findChain(UUID noteId, int revision);
+
+    List<NoteRevisionEntity> findAllByNote_IdOrderByRevision(UUID noteId);
+
+    // The latest revision is always kept, so notes with a single revision are never selected
+    @Query("""
+            select r.note.id from NoteRevisionEntity r
+            group by r.note.id
+            having count(r) > :maxRevisions or (count(r) > 1 and min(r.createdAt) < :createdBefore)
+            """)
+    List<UUID> findNoteIdsToCompact(long maxRevisions, LocalDateTime createdBefore);
+
+}
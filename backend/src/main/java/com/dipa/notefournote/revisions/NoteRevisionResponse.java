@@ -0,0 +1,6 @@
+package com.dipa.notefournote.revisions;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+public record NoteRevisionResponse(int revision, String title, String content, Set<String> tags, LocalDateTime createdAt) {}
@@ -0,0 +1,22 @@
+package com.dipa.notefournote.revisions;
+
+import com.dipa.notefournote.notes.NoteEntity;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface NoteRevisionService {
+
+    void recordRevision(NoteEntity note, NoteRevisionState previous, NoteRevisionState current);
+
+    List<NoteRevisionSummary> findRevisions(UUID noteId, String username);
+
+    NoteRevisionResponse findRevision(UUID noteId, int revision, String username);
+
+    NoteRevisionDiff diffRevisions(UUID noteId, int fromRevision, int toRevision, String username);
+
+    NoteRevisionState findRevisionState(UUID noteId, int revision);
+
+    void compactRevisions(UUID noteId);
+
+}
@@ -0,0 +1,180 @@
+package com.dipa.notefournote.revisions;
+
+import com.dipa.notefournote.exception.NoteAccessDeniedException;
+import com.dipa.notefournote.exception.NoteNotFoundException;
+import com.dipa.notefournote.exception.RevisionNotFoundException;
+import com.dipa.notefournote.notes.NoteEntity;
+import com.dipa.notefournote.notes.NoteRepository;
+import com.dipa.notefournote.notes.NoteVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Slf4j
+@Service
+public class NoteRevisionServiceImpl implements NoteRevisionService {
+
+    private final NoteRevisionRepository noteRevisionRepository;
+    private final NoteRepository noteRepository;
+    private final int snapshotInterval;
+    private final int maxRevisionsPerNote;
+    private final Duration maxAge;
+
+    public NoteRevisionServiceImpl(NoteRevisionRepository noteRevisionRepository,
+                                   NoteRepository noteRepository,
+                                   @Value("${notes.revisions.snapshot-interval:10}") int snapshotInterval,
+                                   @Value("${notes.revisions.max-per-note:50}") int maxRevisionsPerNote,
+                                   @Value("${notes.revisions.max-age:180d}") Duration maxAge) {
+        this.noteRevisionRepository = noteRevisionRepository;
+        this.noteRepository = noteRepository;
+        this.snapshotInterval = snapshotInterval;
+        this.maxRevisionsPerNote = maxRevisionsPerNote;
+        this.maxAge = maxAge;
+    }
+
+    @Override
+    @Transactional
+    public void recordRevision(NoteEntity note, NoteRevisionState previous, NoteRevisionState current) {
+        final NoteRevisionHead head = noteRevisionRepository.findHead(note.getId());
+        int latestRevision = head.latestRevision() == null ? 0 : head.latestRevision();
+        int latestSnapshot = head.latestSnapshot() == null ? 0 : head.latestSnapshot();
+
+        // History starts at the first change: the state before it becomes the base snapshot
+        if (latestRevision == 0) {
+            saveRevision(note, 1, RevisionKind.SNAPSHOT, previous, previous.content());
+            latestRevision = 1;
+            latestSnapshot = 1;
+        }
+
+        final int revision = latestRevision + 1;
+        final String delta = LineDelta.encode(previous.content(), current.content());
+
+        // A snapshot every snapshotInterval revisions bounds the number of deltas applied to rebuild a revision
+        if (revision - latestSnapshot >= snapshotInterval || delta.length() >= current.content().length()) {
+            saveRevision(note, revision, RevisionKind.SNAPSHOT, current, current.content());
+        } else {
+            saveRevision(note, revision, RevisionKind.DELTA, current, delta);
+        }
+        log.debug("Recorded revision {} of note '{}'", revision, note.getId());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<NoteRevisionSummary> findRevisions(UUID noteId, String username) {
+        log.info("Fetching revisions of note '{}' for user: '{}'", noteId, username);
+        checkVisibility(noteId, username);
+
+        return noteRevisionRepository.findSummariesByNoteId(noteId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public NoteRevisionResponse findRevision(UUID noteId, int revision, String username) {
+        log.info("Fetching revision {} of note '{}' for user: '{}'", revision, noteId, username);
+        checkVisibility(noteId, username);
+
+        final List<NoteRevisionEntity> chain = findChain(noteId, revision);
+        final NoteRevisionEntity target = chain.getLast();
+        return new NoteRevisionResponse(revision, target.getTitle(), rebuildContent(chain), new HashSet<>(target.getTags()), target.getCreatedAt());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public NoteRevisionDiff diffRevisions(UUID noteId, int fromRevision, int toRevision, String username) {
+        log.info("Comparing revisions {} and {} of note '{}' for user: '{}'", fromRevision, toRevision, noteId, username);
+        checkVisibility(noteId, username);
+
+        final NoteRevisionState from = findRevisionState(noteId, fromRevision);
+        final NoteRevisionState to = findRevisionState(noteId, toRevision);
+        final boolean titleChanged = !from.title().equals(to.title());
+
+        return new NoteRevisionDiff(
+                fromRevision,
+                toRevision,
+                titleChanged ? from.title() : null,
+                titleChanged ? to.title() : null,
+                LineDelta.unifiedDiff(from.content(), to.content(), fromRevision, toRevision));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public NoteRevisionState findRevisionState(UUID noteId, int revision) {
+        final List<NoteRevisionEntity> chain = findChain(noteId, revision);
+        final NoteRevisionEntity target = chain.getLast();
+        return new NoteRevisionState(target.getTitle(), rebuildContent(chain), new HashSet<>(target.getTags()));
+    }
+
+    // Applies retention: the oldest kept revision is rebased on a snapshot before the older ones are deleted
+    @Override
+    @Transactional
+    public void compactRevisions(UUID noteId) {
+        final List<NoteRevisionEntity> revisions = noteRevisionRepository.findAllByNote_IdOrderByRevision(noteId);
+        final LocalDateTime createdBefore = LocalDateTime.now().minus(maxAge);
+
+        int firstKept = Math.max(0, revisions.size() - maxRevisionsPerNote);
+        while (firstKept < revisions.size() - 1 && revisions.get(firstKept).getCreatedAt().isBefore(createdBefore)) {
+            firstKept++;
+        }
+        if (firstKept == 0) {
+            return;
+        }
+
+        final NoteRevisionEntity oldestKept = revisions.get(firstKept);
+        if (oldestKept.getKind() == RevisionKind.DELTA) {
+            oldestKept.setPayload(rebuildContent(revisions.subList(0, firstKept + 1)));
+            oldestKept.setKind(RevisionKind.SNAPSHOT);
+            noteRevisionRepository.saveAndFlush(oldestKept);
+        }
+        noteRevisionRepository.deleteAllInBatch(revisions.subList(0, firstKept));
+
+        log.info("Compacted note '{}': removed {} revisions, oldest kept is {}", noteId, firstKept, oldestKept.getRevision());
+    }
+
+    private void checkVisibility(UUID noteId, String username) {
+        final NoteVersion version = noteRepository.findVersionById(noteId, username)
+                .orElseThrow(() -> new NoteNotFoundException("Note not found with id: " + noteId));
+
+        if (!version.isVisibleTo(username)) {
+            throw new NoteAccessDeniedException("User does not have access to this note");
+        }
+    }
+
+    private List<NoteRevisionEntity> findChain(UUID noteId, int revision) {
+        final List<NoteRevisionEntity> chain = noteRevisionRepository.findChain(noteId, revision);
+        if (chain.isEmpty() || chain.getLast().getRevision() != revision) {
+            throw new RevisionNotFoundException("Revision " + revision + " not found for note: " + noteId);
+        }
+        return chain;
+    }
+
+    // Starts from the last snapshot of the given revisions and applies the deltas that follow it
+    private static String rebuildContent(List<NoteRevisionEntity> revisions) {
+        int start = revisions.size() - 1;
+        while (revisions.get(start).getKind() != RevisionKind.SNAPSHOT) {
+            start--;
+        }
+
+        String content = revisions.get(start).getPayload();
+        for (NoteRevisionEntity revision : revisions.subList(start + 1, revisions.size())) {
+            content = LineDelta.apply(content, revision.getPayload());
+        }
+        return content;
+    }
+
+    private void saveRevision(NoteEntity note, int revision, RevisionKind kind, NoteRevisionState state, String payload) {
+        final NoteRevisionEntity entity = new NoteRevisionEntity();
+        entity.setNote(note);
+        entity.setRevision(revision);
+        entity.setKind(kind);
+        entity.setTitle(state.title());
+        entity.setTags(state.tags().stream().sorted().toList());
+        entity.setPayload(payload);
+        noteRevisionRepository.save(entity);
+    }
+
+}
@@ -0,0 +1,6 @@
+package com.dipa.notefournote.revisions;
+
+import java.util.Set;
+
+// Versioned fields of a note
+public record NoteRevisionState(String title, String content, Set<String> tags) {}
@@ -0,0 +1,6 @@
+package com.dipa.notefournote.revisions;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record NoteRevisionSummary(int revision, String title, List<String> tags, LocalDateTime createdAt) {}
@@ -0,0 +1,6 @@
+package com.dipa.notefournote.revisions;
+
+public enum RevisionKind {
+    SNAPSHOT,
+    DELTA
+}
@@ -14,6 +14,7 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Slf4j
 @Component
@@ -34,9 +35,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (StringUtils.hasText(jwt) && SecurityContextHolder.getContext().getAuthentication() == null) {
 
             // Solo gli access token consentono l'accesso alle risorse
-            if (jwtService.isAccessTokenValid(jwt)) {
+            final Optional<String> verifiedUsername = jwtService.getUsernameFromAccessToken(jwt);
+            if (verifiedUsername.isPresent()) {
                 try {
-                    final String username = jwtService.getUsernameFromToken(jwt);
+                    final String username = verifiedUsername.get();
                     final UserDetails userDetails = userDetailsService.loadUserByUsername(username);
 
                     final JwtAuthenticationToken authentication = new JwtAuthenticationToken(userDetails, jwt, userDetails.getAuthorities());
@@ -1,8 +1,15 @@
 package com.dipa.notefournote.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
@@ -10,25 +17,51 @@ import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.Map;
+import java.util.Optional;
 
 @Slf4j
 @Service
 public class JwtService {
 
-    @Value("${JWT_ACCESS_EXPIRATION:3600000}") // Default di 1 ora
-    private Long jwtAccessExpiration;
-
-    @Value("${JWT_REFRESH_EXPIRATION:604800000}") // Default di 7 giorni
-    private Long jwtRefreshExpiration;
-
-    @Value("${JWT_SECRET}")
-    private String jwtSecret;
-
     private static final String TOKEN_TYPE_CLAIM = "token_type";
     private static final String REFRESH_TOKEN_TYPE = "refresh";
     private static final String ACCESS_TOKEN_TYPE = "access";
+    private static final String CACHE_NAME = "security.jwt.verified";
+
+    private final long jwtAccessExpiration;
+    private final long jwtRefreshExpiration;
+
+    // Immutable and thread-safe: built once, not for every token
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+
+    // Access tokens already verified: a hit skips the signature check and the parsing until the token expires
+    private final Cache<String, VerifiedToken> verifiedAccessTokens;
+
+    public JwtService(@Value("${JWT_SECRET}") String jwtSecret,
+                      @Value("${JWT_ACCESS_EXPIRATION:3600000}") long jwtAccessExpiration, // Default di 1 ora
+                      @Value("${JWT_REFRESH_EXPIRATION:604800000}") long jwtRefreshExpiration, // Default di 7 giorni
+                      @Value("${notes.security.jwt.verified-cache-size:10000}") long verifiedCacheSize,
+                      MeterRegistry meterRegistry) {
+        this.jwtAccessExpiration = jwtAccessExpiration;
+        this.jwtRefreshExpiration = jwtRefreshExpiration;
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+
+        this.verifiedAccessTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(Expiry.creating((String token, VerifiedToken verified) -> Duration.between(Instant.now(), verified.expiresAt())))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedAccessTokens, CACHE_NAME);
+    }
 
     public String generateToken(Authentication authentication, boolean isRefreshToken) {
         final long expiration = isRefreshToken ? jwtRefreshExpiration : jwtAccessExpiration;
@@ -45,7 +78,7 @@ public class JwtService {
                 .issuedAt(currentDate)
                 .expiration(expireDate)
                 .claims(extraClaim)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
@@ -53,17 +86,30 @@ public class JwtService {
         return getClaims(token).getSubject();
     }
 
-    public boolean isAccessTokenValid(String token) {
+    // Username of a valid access token, verified once per token (empty for invalid, expired or non-access tokens)
+    public Optional<String> getUsernameFromAccessToken(String token) {
+        final VerifiedToken verified = verifiedAccessTokens.getIfPresent(token);
+        if (verified != null) {
+            return Optional.of(verified.username());
+        }
+
         try {
+            // Expired tokens are rejected by the parser
             final Claims claims = getClaims(token);
-            if (isTokenExpired(claims)) {
-                log.warn("Access token is expired");
-                return false;
+            if (!ACCESS_TOKEN_TYPE.equals(claims.get(TOKEN_TYPE_CLAIM))) {
+                log.warn("Received a non-access token");
+                return Optional.empty();
+            }
+            if (claims.getExpiration() != null) {
+                verifiedAccessTokens.put(token, new VerifiedToken(claims.getSubject(), claims.getExpiration().toInstant()));
             }
-            return ACCESS_TOKEN_TYPE.equals(claims.get(TOKEN_TYPE_CLAIM));
+            return Optional.of(claims.getSubject());
+        } catch (ExpiredJwtException e) {
+            log.warn("Access token is expired");
+            return Optional.empty();
         } catch (Exception e) {
             log.error("Invalid access token: {}", e.getMessage());
-            return false;
+            return Optional.empty();
         }
     }
 
@@ -86,15 +132,9 @@ public class JwtService {
     }
 
     private Claims getClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = this.jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
-}
\ No newline at end of file
+    private record VerifiedToken(String username, Instant expiresAt) {}
+
+}
@@ -38,6 +38,7 @@ public class SecurityConfig {
                                                    "/",
                                                    "/login",
                                                    "/dashboard").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated())
                 .httpBasic(AbstractHttpConfigurer::disable)
                 .formLogin(form -> form
@@ -2,6 +2,8 @@ package com.dipa.notefournote.users;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -9,4 +11,6 @@ public interface UserRepository extends JpaRepository<UserEntity, UUID> {
 
     Optional<UserEntity> findByUsername(String username);
 
+    List<UserEntity> findAllByUsernameIn(Collection<String> usernames);
+
 }
\ No newline at end of file
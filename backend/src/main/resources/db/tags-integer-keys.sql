@@ -0,0 +1,23 @@
+-- Migrates tags and note_tags from UUID to integer surrogate keys.
+-- Run once with the application stopped: ddl-auto cannot change the type of existing key columns.
+begin;
+
+alter table tags add column new_id integer generated by default as identity;
+
+alter table note_tags add column new_tag_id integer;
+update note_tags nt set new_tag_id = t.new_id from tags t where t.id = nt.tag_id;
+
+-- Dropping the old columns also drops the primary keys and foreign keys built on them
+alter table note_tags drop column tag_id;
+alter table tags drop column id;
+
+alter table tags rename column new_id to id;
+alter table tags add primary key (id);
+
+alter table note_tags rename column new_tag_id to tag_id;
+alter table note_tags alter column tag_id set not null;
+-- Same column order as the key generated for the join table: tags are always read by note
+alter table note_tags add primary key (note_id, tag_id);
+alter table note_tags add foreign key (tag_id) references tags (id);
+
+commit;
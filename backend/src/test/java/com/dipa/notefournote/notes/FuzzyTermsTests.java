@@ -0,0 +1,71 @@
+package com.dipa.notefournote.notes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FuzzyTermsTests {
+
+    @Test
+    void countsTranspositionsAsOneEditAndStopsAboveTheMax() {
+        assertThat(FuzzyTerms.distance("riunione", "riunione", 2)).isZero();
+        assertThat(FuzzyTerms.distance("riunione", "riuniome", 2)).isEqualTo(1);
+        assertThat(FuzzyTerms.distance("riunione", "riunoine", 2)).isEqualTo(1);
+        assertThat(FuzzyTerms.distance("riunione", "runone", 2)).isEqualTo(2);
+        assertThat(FuzzyTerms.distance("riunione", "scadenza", 2)).isEqualTo(3);
+        assertThat(FuzzyTerms.distance("latte", "latteria", 1)).isEqualTo(2);
+    }
+
+    @Test
+    void allowsMoreEditsToLongerWords() {
+        assertThat(FuzzyTerms.maxEdits("di")).isZero();
+        assertThat(FuzzyTerms.maxEdits("latte")).isEqualTo(1);
+        assertThat(FuzzyTerms.maxEdits("riunione")).isEqualTo(2);
+    }
+
+    @Test
+    void tokenizesLowercaseWordsAndPadsTrigrams() {
+        assertThat(FuzzyTerms.tokenize("Lista della Spesa: latte, pane!")).containsExactly("lista", "della", "spesa", "latte", "pane");
+        assertThat(FuzzyTerms.trigrams("pane")).containsExactly("^pa", "pan", "ane", "ne$");
+    }
+
+    @Test
+    void keepsTransposedWordsAmongTheTrigramCandidates() {
+        final List<String> grams = FuzzyTerms.trigrams("ltate");
+        final List<String> shared = FuzzyTerms.trigrams("latte").stream().filter(grams::contains).toList();
+
+        assertThat(FuzzyTerms.distance("ltate", "latte", FuzzyTerms.maxEdits("ltate"))).isEqualTo(1);
+        assertThat(shared).containsExactly("te$");
+        assertThat(shared.size()).isGreaterThanOrEqualTo(FuzzyTerms.minOverlap(grams, FuzzyTerms.maxEdits("ltate")));
+    }
+
+    @Test
+    void looksUpTheRarestTrigramsEveryCandidateShares() {
+        final List<String> grams = FuzzyTerms.trigrams("riunione");
+        final int minOverlap = FuzzyTerms.minOverlap(grams, 1);
+        final Map<String, Long> frequencies = Map.of("^ri", 900L, "riu", 3L, "iun", 5L, "uni", 700L, "nio", 40L, "ion", 800L, "one", 950L, "ne$", 990L);
+
+        final List<String> rare = FuzzyTerms.rarestGrams(grams, minOverlap, frequencies::get, 10_000);
+        assertThat(rare).containsExactly("riu", "iun", "nio", "uni", "ion");
+        // A substitution keeps the other trigrams: "riunioni" still contains the rare ones
+        assertThat(FuzzyTerms.trigrams("riunioni")).containsAnyElementsOf(rare);
+    }
+
+    @Test
+    void leavesTheCommonTrigramsOutWhenTheyExceedTheBudget() {
+        final Map<String, Long> frequencies = Map.of("^la", 500L, "lat", 20L, "att", 300L, "tte", 60L, "te$", 2000L);
+
+        assertThat(FuzzyTerms.rarestGrams(FuzzyTerms.trigrams("latte"), 1, frequencies::get, 400)).containsExactly("lat", "tte", "att");
+        assertThat(FuzzyTerms.rarestGrams(FuzzyTerms.trigrams("latte"), 1, frequencies::get, 10)).containsExactly("lat");
+    }
+
+    @Test
+    void scansTheLengthsOfTheWordOutwards() {
+        assertThat(FuzzyTerms.lengthsByDistance(8, 2)).containsExactly(8, 7, 9, 6, 10);
+        assertThat(FuzzyTerms.lengthsByDistance(3, 1)).containsExactly(3, 4);
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.dipa.notefournote.notes;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LuceneNoteSearchRepositoryTests {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 1, 1, 12, 0, 0, 123_456_789);
+
+    @TempDir
+    private Path indexPath;
+
+    private LuceneNoteSearchRepository repository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        repository = new LuceneNoteSearchRepository(indexPath.resolve("notes-index").toString(), DataSize.ofMegabytes(16));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        repository.close();
+    }
+
+    @Test
+    void textSearchRanksTitleMatchesFirstAndOnlyReturnsReadableNotes() {
+        final NoteDocument inContent = note("Lista della spesa", "Comprare il latte e il pane", Set.of(), "pippo", List.of("pluto"), NOW);
+        final NoteDocument inTitle = note("Latte", "Da comprare domani", Set.of(), "pippo", List.of(), NOW);
+        final NoteDocument notShared = note("Latte di mandorla", "Ricetta", Set.of(), "paperino", List.of(), NOW);
+        repository.bulkWrite(List.of(NoteIndexWrite.replace(inContent), NoteIndexWrite.replace(inTitle), NoteIndexWrite.replace(notShared)));
+
+        assertThat(ids(repository.searchNotes("latte", null, "pippo", null, 10, true)))
+                .containsExactly(inTitle.getId(), inContent.getId());
+        assertThat(ids(repository.searchNotes("latte", null, "pluto", null, 10, true)))
+                .containsExactly(inContent.getId());
+    }
+
+    @Test
+    void tagSearchPagesByRecencyWithKeysetCursor() {
+        final List<NoteIndexWrite> writes = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            // Pairs of notes updated at the same time: the id breaks the tie
+            writes.add(NoteIndexWrite.replace(note("Nota " + i, "Contenuto " + i, Set.of("COMMON", "TAG" + i % 2), "pippo", List.of(), NOW.minusMinutes(i / 2))));
+        }
+        repository.bulkWrite(writes);
+
+        final List<String> seen = new ArrayList<>();
+        NoteSearchCursor cursor = null;
+        List<NoteDocument> page;
+        do {
+            page = repository.searchNotes(null, Set.of("COMMON"), "pippo", cursor, 10, false);
+            page.forEach(document -> assertThat(document.getContent()).isNull());
+            seen.addAll(ids(page));
+            cursor = page.isEmpty() ? null : NoteSearchCursor.after(page.getLast());
+        } while (page.size() == 10);
+
+        assertThat(seen).hasSize(25).doesNotHaveDuplicates();
+        assertThat(repository.searchNotes(null, Set.of("COMMON", "TAG1"), "pippo", null, 100, false)).hasSize(12);
+    }
+
+    @Test
+    void partialUpdatesAndDeletionsAreSearchable() {
+        final NoteDocument note = note("Riunione", "Ordine del giorno", Set.of("LAVORO"), "pippo", List.of(), NOW);
+        repository.bulkWrite(List.of(NoteIndexWrite.replace(note)));
+
+        final Set<String> failed = repository.bulkWrite(List.of(NoteIndexWrite.update(note.getId(), Map.of(
+                NoteDocument.SHARED_WITH_USERNAMES, List.of("pluto"),
+                NoteDocument.READERS, List.of("pippo", "pluto"),
+                NoteDocument.UPDATED_AT, NOW.plusMinutes(1)))));
+
+        assertThat(failed).isEmpty();
+        final List<NoteDocument> found = repository.searchNotes("riunione", null, "pluto", null, 10, true);
+        assertThat(found).singleElement().satisfies(document -> {
+            assertThat(document.getContent()).isEqualTo("Ordine del giorno");
+            assertThat(document.getTags()).containsExactly("LAVORO");
+            assertThat(document.getUpdatedAt()).isEqualTo(NOW.plusMinutes(1));
+        });
+
+        repository.bulkWrite(List.of(NoteIndexWrite.delete(note.getId())));
+        assertThat(repository.searchNotes(null, Set.of("LAVORO"), "pippo", null, 10, false)).isEmpty();
+    }
+
+    @Test
+    void fuzzySearchToleratesTyposAndRanksCloserAndTitleMatchesFirst() {
+        final NoteDocument exactInTitle = note("Riunione", "Ordine del giorno", Set.of(), "pippo", List.of(), NOW);
+        final NoteDocument exactInContent = note("Lavoro", "Preparare la riunione di domani", Set.of(), "pippo", List.of(), NOW);
+        final NoteDocument tagged = note("Scadenze", "Consegne di marzo", Set.of("RIUNIONI"), "pippo", List.of(), NOW);
+        final NoteDocument unrelated = note("Spesa", "Comprare il latte", Set.of(), "pippo", List.of(), NOW);
+        repository.bulkWrite(List.of(NoteIndexWrite.replace(exactInTitle), NoteIndexWrite.replace(exactInContent),
+                NoteIndexWrite.replace(tagged), NoteIndexWrite.replace(unrelated)));
+
+        assertThat(repository.searchNotes("riunoine", null, "pippo", null, 10, true)).isEmpty();
+        assertThat(ids(repository.fuzzySearchNotes("riunoine", null, "pippo", null, 10, true)))
+                .containsExactly(exactInTitle.getId(), exactInContent.getId(), tagged.getId());
+        assertThat(repository.fuzzySearchNotes("riunoine", null, "pluto", null, 10, true)).isEmpty();
+    }
+
+    @Test
+    void countsTagsOfTheMatchingReadableNotes() {
+        repository.bulkWrite(List.of(
+                NoteIndexWrite.replace(note("Spesa", "Comprare il latte", Set.of("CASA", "CIBO"), "pippo", List.of(), NOW)),
+                NoteIndexWrite.replace(note("Cena", "Comprare il pane", Set.of("CIBO"), "pippo", List.of(), NOW)),
+                NoteIndexWrite.replace(note("Bollette", "Pagare la luce", Set.of("CASA"), "pippo", List.of(), NOW)),
+                NoteIndexWrite.replace(note("Altro", "Comprare il latte", Set.of("CIBO"), "pluto", List.of(), NOW))));
+
+        assertThat(repository.countTags(null, null, "pippo", 10))
+                .containsExactly(new TagFacet("CASA", 2), new TagFacet("CIBO", 2));
+        assertThat(repository.countTags("latte", null, "pippo", 10))
+                .containsExactly(new TagFacet("CASA", 1), new TagFacet("CIBO", 1));
+        assertThat(repository.countTags(null, Set.of("CIBO"), "pippo", 1))
+                .containsExactly(new TagFacet("CIBO", 2));
+    }
+
+    @Test
+    void digestsAndVersionsCoverTheNotesOfAKeyPrefix() {
+        final NoteDocument first = note("Uno", "Contenuto uno", Set.of("A", "B"), "pippo", List.of(), NOW);
+        final NoteDocument second = note("Due", "Contenuto due", Set.of(), "pluto", List.of("pippo", "paperino"), NOW.plusSeconds(1));
+        first.setId("a1" + first.getId().substring(2));
+        second.setId("a2" + second.getId().substring(2));
+        repository.bulkWrite(List.of(NoteIndexWrite.replace(first), NoteIndexWrite.replace(second)));
+
+        assertThat(repository.digestKeys("", 1)).containsExactly(new NoteKeyDigest("a", 2,
+                NoteKeyDigest.checksumOf(NOW) + NoteKeyDigest.checksumOf(NOW.plusSeconds(1)), 2, 2));
+        assertThat(repository.digestKeys("a", 2)).containsExactlyInAnyOrder(
+                new NoteKeyDigest("a1", 1, NoteKeyDigest.checksumOf(NOW), 0, 2),
+                new NoteKeyDigest("a2", 1, NoteKeyDigest.checksumOf(NOW.plusSeconds(1)), 2, 0));
+        assertThat(repository.findKeyVersions("a2"))
+                .containsExactly(new NoteKeyVersion(UUID.fromString(second.getId()), NOW.plusSeconds(1), 2, 0));
+        assertThat(repository.digestKeys("b", 2)).isEmpty();
+    }
+
+    @Test
+    void sharingChangesTheDigestUnderTheSameUpdateTime() {
+        final NoteDocument note = note("Uno", "Contenuto uno", Set.of(), "pippo", List.of(), NOW);
+        repository.bulkWrite(List.of(NoteIndexWrite.replace(note)));
+        final List<NoteKeyDigest> before = repository.digestKeys("", 1);
+
+        repository.bulkWrite(List.of(NoteIndexWrite.update(note.getId(), Map.of(
+                NoteDocument.SHARED_WITH_USERNAMES, List.of("pluto"),
+                NoteDocument.READERS, List.of("pippo", "pluto")))));
+
+        assertThat(repository.digestKeys("", 1)).isNotEqualTo(before);
+        assertThat(repository.findKeyVersions("")).extracting(NoteKeyVersion::shares).containsExactly(1L);
+    }
+
+    @Test
+    void publishedRebuildReplacesTheIndex() {
+        repository.bulkWrite(List.of(NoteIndexWrite.replace(note("Vecchia", "Contenuto vecchio", Set.of("A"), "pippo", List.of(), NOW))));
+
+        final NoteIndexRebuild rebuild = repository.startRebuild();
+        rebuild.insert(List.of(note("Nuova", "Contenuto nuovo", Set.of("A"), "pippo", List.of(), NOW)));
+        assertThat(repository.count()).isEqualTo(1);
+        rebuild.publish();
+
+        assertThat(repository.count()).isEqualTo(1);
+        assertThat(repository.searchNotes(null, Set.of("A"), "pippo", null, 10, false))
+                .extracting(NoteDocument::getTitle)
+                .containsExactly("Nuova");
+    }
+
+    private static NoteDocument note(String title, String content, Set<String> tags, String owner, List<String> sharedWith, LocalDateTime updatedAt) {
+        final NoteDocument document = new NoteDocument();
+        document.setId(UUID.randomUUID().toString());
+        document.setTitle(title);
+        document.setContent(content);
+        document.setTags(List.copyOf(tags));
+        document.setOwnerUsername(owner);
+        document.setSharedWithUsernames(sharedWith);
+        document.setReaders(NoteMapper.readersOf(owner, sharedWith));
+        document.setCreatedAt(updatedAt);
+        document.setUpdatedAt(updatedAt);
+        return document;
+    }
+
+    private static List<String> ids(List<NoteDocument> documents) {
+        return documents.stream().map(NoteDocument::getId).toList();
+    }
+
+}
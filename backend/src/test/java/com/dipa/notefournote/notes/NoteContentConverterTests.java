@@ -0,0 +1,86 @@
+package com.dipa.notefournote.notes;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NoteContentConverterTests {
+
+    private static final int MIN_LENGTH = 200;
+
+    private static NoteContentConverter converter(boolean enabled) {
+        return new NoteContentConverter(new SimpleMeterRegistry(), enabled, MIN_LENGTH);
+    }
+
+    private static String logLines(int count) {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            content.append("2026-10-17 INFO riga ").append(i).append(" è ok\n");
+        }
+        return content.toString();
+    }
+
+    @Test
+    void compressesLargeContentsAndReadsThemBack() {
+        final NoteContentConverter converter = converter(true);
+        final String content = logLines(500);
+
+        final String stored = converter.convertToDatabaseColumn(content);
+
+        assertThat(stored).startsWith(NoteContentConverter.HEADER);
+        assertThat(stored.length()).isLessThan(content.length());
+        assertThat(converter.convertToEntityAttribute(stored)).isEqualTo(content);
+    }
+
+    @Test
+    void keepsShortContentsPlain() {
+        final NoteContentConverter converter = converter(true);
+
+        assertThat(converter.convertToDatabaseColumn("lista della spesa")).isEqualTo("lista della spesa");
+        assertThat(converter.convertToEntityAttribute("lista della spesa")).isEqualTo("lista della spesa");
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+        assertThat(converter.convertToEntityAttribute(null)).isNull();
+    }
+
+    @Test
+    void compressesPlainContentsStartingWithTheHeader() {
+        final String content = NoteContentConverter.HEADER + "non compresso";
+
+        for (final NoteContentConverter converter : new NoteContentConverter[]{converter(true), converter(false)}) {
+            final String stored = converter.convertToDatabaseColumn(content);
+
+            assertThat(stored).isNotEqualTo(content);
+            assertThat(converter.convertToEntityAttribute(stored)).isEqualTo(content);
+        }
+    }
+
+    @Test
+    void keepsPoorlyCompressibleContentsPlain() {
+        final NoteContentConverter converter = converter(true);
+        final Random random = new Random(42);
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.appendCodePoint(0x4E00 + random.nextInt(0x5000));
+        }
+
+        final String stored = converter.convertToDatabaseColumn(content.toString());
+
+        assertThat(stored).isEqualTo(content.toString());
+        assertThat(converter.convertToEntityAttribute(stored)).isEqualTo(content.toString());
+    }
+
+    @Test
+    void storesPlainValuesWhenDisabledAndStillReadsCompressedOnes() {
+        final String content = logLines(500);
+        final String compressed = converter(true).convertToDatabaseColumn(content);
+        final NoteContentConverter disabled = converter(false);
+
+        assertThat(disabled.convertToDatabaseColumn(content)).isEqualTo(content);
+        assertThat(disabled.convertToEntityAttribute(compressed)).isEqualTo(content);
+        assertThat(disabled.convertToDatabaseColumn(disabled.convertToEntityAttribute(compressed))).isEqualTo(content);
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.dipa.notefournote.notes;
+
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class NoteSearchQueryPlanTests {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private String reader;
+
+    @BeforeEach
+    void setUp() {
+        reader = "qp" + UUID.randomUUID().toString().substring(0, 12);
+
+        final List<NoteDocument> documents = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final NoteDocument document = new NoteDocument();
+            document.setId(UUID.randomUUID().toString());
+            document.setTitle("Nota " + i);
+            document.setContent("Contenuto della nota " + i);
+            document.setTags(List.of("TAG" + (i % 4), "COMMON"));
+            document.setOwnerUsername(reader);
+            document.setSharedWithUsernames(List.of());
+            document.setReaders(List.of(reader));
+            document.setCreatedAt(LocalDateTime.now());
+            document.setUpdatedAt(LocalDateTime.now().minusMinutes(i));
+            documents.add(document);
+        }
+        mongoTemplate.insertAll(documents);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoTemplate.remove(Query.query(Criteria.where(NoteDocument.OWNER_USERNAME).is(reader)), NoteDocument.class);
+    }
+
+    @Test
+    void textSearchUsesTextIndex() {
+        assertNoCollectionScan(MongoNoteSearchRepository.buildSearchQuery("contenuto", null, reader, null, 11, false));
+    }
+
+    @Test
+    void textAndTagSearchUsesTextIndex() {
+        assertNoCollectionScan(MongoNoteSearchRepository.buildSearchQuery("contenuto", Set.of("TAG1"), reader, NoteSearchCursor.ofOffset(10), 11, true));
+    }
+
+    @Test
+    void tagSearchUsesIndex() {
+        assertNoCollectionScan(MongoNoteSearchRepository.buildSearchQuery(null, Set.of("TAG1", "COMMON"), reader, null, 11, false));
+    }
+
+    @Test
+    void tagSearchAfterCursorUsesIndex() {
+        final NoteSearchCursor cursor = new NoteSearchCursor(null, LocalDateTime.now().minusMinutes(5), UUID.randomUUID().toString());
+        assertNoCollectionScan(MongoNoteSearchRepository.buildSearchQuery(null, Set.of("COMMON"), reader, cursor, 11, false));
+    }
+
+    @Test
+    void fuzzyTextSearchUsesTextIndex() {
+        final Map<String, Map<String, Integer>> expansions = Map.of("contenuto", Map.of("contenuto", 0, "contenuti", 1));
+        assertNoCollectionScan(MongoNoteSearchRepository.buildFuzzyTextQuery(expansions, Set.of("COMMON"), reader));
+    }
+
+    @Test
+    void fuzzyTagSearchUsesIndex() {
+        final Map<String, Map<String, Integer>> expansions = Map.of("common", Map.of("common", 0, "commons", 1));
+        assertNoCollectionScan(MongoNoteSearchRepository.buildFuzzyTagQuery(expansions, null, reader));
+    }
+
+    private void assertNoCollectionScan(Query query) {
+        final MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(NoteDocument.class);
+        final QueryMapper queryMapper = new QueryMapper(mongoTemplate.getConverter());
+
+        final Document find = new Document("find", mongoTemplate.getCollectionName(NoteDocument.class))
+                .append("filter", queryMapper.getMappedObject(query.getQueryObject(), entity))
+                .append("sort", queryMapper.getMappedSort(query.getSortObject(), entity))
+                .append("projection", queryMapper.getMappedFields(query.getFieldsObject(), entity))
+                .append("skip", query.getSkip())
+                .append("limit", query.getLimit());
+        final Document explain = mongoTemplate.executeCommand(new Document("explain", find).append("verbosity", "queryPlanner"));
+
+        final Document winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+        assertThat(stagesOf(winningPlan))
+                .as("Winning plan of %s", query)
+                .doesNotContain("COLLSCAN")
+                .isNotEmpty();
+    }
+
+    // Stage names of a plan tree (single or multiple input stages, classic or slot based engine)
+    private static List<String> stagesOf(Document plan) {
+        final List<String> stages = new ArrayList<>();
+        if (plan.containsKey("stage")) {
+            stages.add(plan.getString("stage"));
+        }
+        for (String child : List.of("inputStage", "queryPlan")) {
+            if (plan.get(child) instanceof Document childPlan) {
+                stages.addAll(stagesOf(childPlan));
+            }
+        }
+        if (plan.get("inputStages") instanceof List<?> inputs) {
+            inputs.stream()
+                    .filter(Document.class::isInstance)
+                    .forEach(input -> stages.addAll(stagesOf((Document) input)));
+        }
+        return stages;
+    }
+
+}
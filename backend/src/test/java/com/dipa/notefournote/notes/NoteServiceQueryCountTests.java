@@ -0,0 +1,128 @@
+package com.dipa.notefournote.notes;
+
+import com.dipa.notefournote.exception.NoteAccessDeniedException;
+import com.dipa.notefournote.users.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// The outbox poller runs on its own thread: its statements would be counted with the ones under test
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "notes.index.outbox.poll-interval=1h"
+})
+class NoteServiceQueryCountTests {
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void listingNotesCostsConstantStatementsRegardlessOfPageSize() {
+        final String smallOwner = registerUserWithNotes(2);
+        final String largeOwner = registerUserWithNotes(12);
+
+        final long smallCount = countStatements(() -> noteService.findAllNotesByUsername(smallOwner, null, 100, NoteFields.FULL));
+        final long largeCount = countStatements(() -> noteService.findAllNotesByUsername(largeOwner, null, 100, NoteFields.FULL));
+
+        assertThat(largeCount).isEqualTo(smallCount);
+    }
+
+    @Test
+    void listingSummariesCostsConstantStatementsRegardlessOfPageSize() {
+        final String smallOwner = registerUserWithNotes(2);
+        final String largeOwner = registerUserWithNotes(12);
+
+        final long smallCount = countStatements(() -> noteService.findAllNotesByUsername(smallOwner, null, 100, NoteFields.SUMMARY));
+        final long largeCount = countStatements(() -> noteService.findAllNotesByUsername(largeOwner, null, 100, NoteFields.SUMMARY));
+
+        assertThat(largeCount).isEqualTo(smallCount);
+    }
+
+    @Test
+    void fetchingSingleNoteCostsConstantStatements() {
+        final String owner = registerUserWithNotes(1);
+        final UUID noteId = noteService.findAllNotesByUsername(owner, null, 1, NoteFields.FULL).notes().getFirst().id();
+
+        final long count = countStatements(() -> noteService.findNoteById(noteId, owner));
+
+        // One query per collection: owner and tags, then the shares
+        assertThat(count).isEqualTo(2);
+    }
+
+    @Test
+    void revalidatingACachedPageOnlyReadsTheUserVersion() {
+        final String owner = registerUserWithNotes(3);
+        final ETaggedNotePage page = noteService.findNotesPage(owner, null, 10, NoteFields.FULL);
+
+        final long count = countStatements(() -> assertThat(noteService.findNotesPage(owner, null, 10, NoteFields.FULL).eTag())
+                .isEqualTo(page.eTag()));
+
+        assertThat(count).isEqualTo(1);
+    }
+
+    @Test
+    void restoringSomeoneElsesNoteIsDeniedBeforeRebuildingTheRevision() {
+        final String owner = registerUserWithNotes(1);
+        final String stranger = uniqueUsername();
+        userService.registerUser(stranger, "password");
+        final UUID noteId = noteService.findAllNotesByUsername(owner, null, 1, NoteFields.FULL).notes().getFirst().id();
+
+        // Only the note row lock and its two fetches: the revision chain is never read
+        statistics.clear();
+        assertThatThrownBy(() -> noteService.restoreRevision(noteId, 1, stranger))
+                .isInstanceOf(NoteAccessDeniedException.class);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+    }
+
+    private String registerUserWithNotes(int notes) {
+        final String owner = uniqueUsername();
+        final String firstReader = uniqueUsername();
+        final String secondReader = uniqueUsername();
+        userService.registerUser(owner, "password");
+        userService.registerUser(firstReader, "password");
+        userService.registerUser(secondReader, "password");
+
+        for (int i = 0; i < notes; i++) {
+            noteService.createNote(new CreateNoteRequest(
+                    "Nota " + i,
+                    "Contenuto della nota " + i,
+                    Set.of("TAG" + i, "COMMON"),
+                    Set.of(firstReader, secondReader)), owner);
+        }
+        return owner;
+    }
+
+    private long countStatements(Runnable action) {
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static String uniqueUsername() {
+        return "qc" + UUID.randomUUID().toString().substring(0, 12);
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.dipa.notefournote.notes;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SuggestionTrieTests {
+
+    @Test
+    void findsShortestCompletionsFirst() {
+        final SuggestionTrie trie = new SuggestionTrie();
+        trie.add("spese mediche", "Spese mediche");
+        trie.add("spesa", "Spesa");
+        trie.add("sport", "Sport");
+        trie.add("casa", "Casa");
+
+        assertThat(trie.find("sp", 10)).containsExactly("Spesa", "Sport", "Spese mediche");
+        assertThat(trie.find("sp", 2)).containsExactly("Spesa", "Sport");
+        assertThat(trie.find("x", 10)).isEmpty();
+    }
+
+    @Test
+    void keepsValuesAddedByOtherNotesAndPrunesRemovedKeys() {
+        final SuggestionTrie trie = new SuggestionTrie();
+        trie.add("lavoro", "LAVORO");
+        trie.add("lavoro", "LAVORO");
+        final int nodes = trie.nodeCount();
+
+        trie.remove("lavoro", "LAVORO");
+        assertThat(trie.find("lav", 10)).containsExactly("LAVORO");
+        assertThat(trie.nodeCount()).isEqualTo(nodes);
+
+        trie.remove("lavoro", "LAVORO");
+        assertThat(trie.find("lav", 10)).isEmpty();
+        assertThat(trie.nodeCount()).isEqualTo(1);
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.dipa.notefournote.revisions;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LineDeltaTests {
+
+    private static void assertRoundTrip(String source, String target) {
+        assertThat(LineDelta.apply(source, LineDelta.encode(source, target))).isEqualTo(target);
+    }
+
+    @Test
+    void rebuildsTheTargetOfASingleChange() {
+        assertRoundTrip("latte\nuova\npane", "latte\nuova bio\npane");
+        assertThat(LineDelta.encode("latte\nuova\npane", "latte\nuova bio\npane")).isEqualTo("1,1,1\nuova bio\n");
+    }
+
+    @Test
+    void keepsTrailingNewlines() {
+        assertRoundTrip("latte\npane", "latte\npane\n");
+        assertRoundTrip("latte\npane\n", "latte\npane");
+        assertRoundTrip("latte\npane\n", "latte\npane\n\n");
+    }
+
+    @Test
+    void handlesEmptyContents() {
+        assertRoundTrip("", "latte\npane");
+        assertRoundTrip("latte\npane", "");
+        assertRoundTrip("", "\n");
+        assertThat(LineDelta.encode("", "")).isEmpty();
+        assertThat(LineDelta.apply("latte", "")).isEqualTo("latte");
+    }
+
+    @Test
+    void keepsAddedEmptyLines() {
+        assertRoundTrip("latte\npane", "latte\n\n\npane");
+        assertRoundTrip("latte\npane", "\nlatte\npane");
+        assertRoundTrip("latte\n\npane", "latte\n\n\n\npane");
+        assertRoundTrip("a\nb\nc\nd\ne\nf\ng\nh", "a\n\nc\nd\ne\nf\n\nh");
+    }
+
+    @Test
+    void appliesSeveralChangesInOrder() {
+        final String source = "uno\ndue\ntre\nquattro\ncinque\nsei\nsette\notto\nnove\ndieci";
+        final String target = "zero\nuno\ndue\nTRE\nquattro\ncinque\nsette\notto\nnove\ndieci\nundici";
+
+        final String delta = LineDelta.encode(source, target);
+
+        assertThat(delta.lines().filter(line -> line.matches("\\d+,\\d+,\\d+"))).hasSize(4);
+        assertThat(LineDelta.apply(source, delta)).isEqualTo(target);
+    }
+
+}
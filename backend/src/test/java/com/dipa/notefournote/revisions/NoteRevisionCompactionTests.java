@@ -0,0 +1,81 @@
+package com.dipa.notefournote.revisions;
+
+import com.dipa.notefournote.notes.CreateNoteRequest;
+import com.dipa.notefournote.notes.NoteService;
+import com.dipa.notefournote.notes.UpdateNoteRequest;
+import com.dipa.notefournote.users.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"notes.revisions.max-per-note=5", "notes.revisions.snapshot-interval=10"})
+class NoteRevisionCompactionTests {
+
+    private static final int UPDATES = 8;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private NoteRevisionService noteRevisionService;
+
+    @Autowired
+    private NoteRevisionRepository noteRevisionRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void compactionRebasesTheOldestKeptDeltaOnASnapshot() {
+        final String owner = "cmp" + UUID.randomUUID().toString().substring(0, 12);
+        userService.registerUser(owner, "password");
+        final UUID noteId = noteService.createNote(new CreateNoteRequest("Nota", content(0), Set.of(), Set.of()), owner).id();
+
+        // Revision 1 is the base snapshot, revision i + 1 holds content(i) as a delta
+        final Map<Integer, String> written = new HashMap<>();
+        for (int i = 1; i <= UPDATES; i++) {
+            noteService.updateNote(noteId, new UpdateNoteRequest("Nota", content(i), Set.of()), owner);
+            written.put(i + 1, content(i));
+        }
+        final int oldestKept = UPDATES + 1 - 5 + 1;
+        assertThat(kindOf(noteId, oldestKept)).isEqualTo(RevisionKind.DELTA);
+
+        noteRevisionService.compactRevisions(noteId);
+
+        final List<NoteRevisionEntity> revisions = noteRevisionRepository.findAllByNote_IdOrderByRevision(noteId);
+        assertThat(revisions).extracting(NoteRevisionEntity::getRevision)
+                .containsExactly(oldestKept, oldestKept + 1, oldestKept + 2, oldestKept + 3, oldestKept + 4);
+        assertThat(revisions).extracting(NoteRevisionEntity::getKind)
+                .containsExactly(RevisionKind.SNAPSHOT, RevisionKind.DELTA, RevisionKind.DELTA, RevisionKind.DELTA, RevisionKind.DELTA);
+        assertThat(revisions.getFirst().getPayload()).isEqualTo(written.get(oldestKept));
+
+        for (NoteRevisionEntity revision : revisions) {
+            assertThat(noteRevisionService.findRevision(noteId, revision.getRevision(), owner).content())
+                    .isEqualTo(written.get(revision.getRevision()));
+        }
+    }
+
+    private RevisionKind kindOf(UUID noteId, int revision) {
+        return noteRevisionRepository.findAllByNote_IdOrderByRevision(noteId).stream()
+                .filter(entity -> entity.getRevision() == revision)
+                .findFirst()
+                .orElseThrow()
+                .getKind();
+    }
+
+    // Long unchanged lines around the changed one: each update is stored as a delta
+    private static String content(int version) {
+        return "Prima riga che non cambia mai tra una revisione e l'altra\n"
+                + "Versione " + version + "\n"
+                + "Ultima riga che non cambia mai tra una revisione e l'altra\n";
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.dipa.notefournote.revisions;
+
+import com.dipa.notefournote.notes.CreateNoteRequest;
+import com.dipa.notefournote.notes.NoteService;
+import com.dipa.notefournote.notes.UpdateNoteRequest;
+import com.dipa.notefournote.users.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class NoteRevisionConcurrencyTests {
+
+    private static final int WRITERS = 4;
+    private static final int UPDATES_PER_WRITER = 10;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private NoteRevisionService noteRevisionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void concurrentUpdatesKeepAReplayableRevisionChain() throws Exception {
+        final String owner = "rev" + UUID.randomUUID().toString().substring(0, 12);
+        userService.registerUser(owner, "password");
+        final UUID noteId = noteService.createNote(new CreateNoteRequest("Nota", content("iniziale"), Set.of(), Set.of()), owner).id();
+
+        final Set<String> written = new HashSet<>();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            final List<CompletableFuture<Void>> writers = IntStream.range(0, WRITERS)
+                    .mapToObj(writer -> CompletableFuture.runAsync(() -> {
+                        await(start);
+                        for (int i = 0; i < UPDATES_PER_WRITER; i++) {
+                            noteService.updateNote(noteId, new UpdateNoteRequest("Nota", content(writer + "-" + i), Set.of()), owner);
+                        }
+                    }, executor))
+                    .toList();
+            IntStream.range(0, WRITERS).forEach(writer ->
+                    IntStream.range(0, UPDATES_PER_WRITER).forEach(i -> written.add(content(writer + "-" + i))));
+            start.countDown();
+            CompletableFuture.allOf(writers.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        // The base snapshot plus one revision per update, each rebuilt to exactly what was written
+        final List<NoteRevisionSummary> revisions = noteRevisionService.findRevisions(noteId, owner);
+        assertThat(revisions).extracting(NoteRevisionSummary::revision)
+                .containsExactlyInAnyOrderElementsOf(IntStream.rangeClosed(1, 1 + WRITERS * UPDATES_PER_WRITER).boxed().toList());
+
+        final Set<String> rebuilt = new HashSet<>();
+        for (int revision = 2; revision <= 1 + WRITERS * UPDATES_PER_WRITER; revision++) {
+            rebuilt.add(noteRevisionService.findRevision(noteId, revision, owner).content());
+        }
+        assertThat(rebuilt).isEqualTo(written);
+        assertThat(noteRevisionService.findRevision(noteId, 1 + WRITERS * UPDATES_PER_WRITER, owner).content())
+                .isEqualTo(noteService.findNoteById(noteId, owner).content());
+    }
+
+    // Long unchanged lines around a varying number of changed ones: revisions are stored as deltas,
+    // and a delta computed from a stale previous state does not rebuild the content written
+    private static String content(String marker) {
+        return "Prima riga che non cambia mai tra una revisione e l'altra\n"
+                + ("Versione " + marker + "\n").repeat(1 + Math.floorMod(marker.hashCode(), 4))
+                + "Ultima riga che non cambia mai tra una revisione e l'altra\n";
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
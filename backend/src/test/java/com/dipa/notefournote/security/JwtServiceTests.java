@@ -0,0 +1,40 @@
+package com.dipa.notefournote.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtServiceTests {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void verifiesAnAccessTokenOnceAndServesItFromTheCache() {
+        final JwtService jwtService = new JwtService(SECRET, 3_600_000, 604_800_000, 100, meterRegistry);
+        final String token = jwtService.generateToken(new UsernamePasswordAuthenticationToken("pippo", null), false);
+
+        assertThat(jwtService.getUsernameFromAccessToken(token)).contains("pippo");
+        assertThat(jwtService.getUsernameFromAccessToken(token)).contains("pippo");
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "security.jwt.verified").tag("result", "hit").functionCounter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void rejectsRefreshTamperedAndExpiredTokens() {
+        final JwtService jwtService = new JwtService(SECRET, 3_600_000, 604_800_000, 100, meterRegistry);
+        final String refreshToken = jwtService.generateToken(new UsernamePasswordAuthenticationToken("pippo", null), true);
+        final String accessToken = jwtService.generateToken(new UsernamePasswordAuthenticationToken("pippo", null), false);
+
+        assertThat(jwtService.getUsernameFromAccessToken(refreshToken)).isEmpty();
+        assertThat(jwtService.getUsernameFromAccessToken(accessToken.substring(0, accessToken.length() - 2))).isEmpty();
+
+        final JwtService expiringService = new JwtService(SECRET, -1_000, 604_800_000, 100, meterRegistry);
+        final String expiredToken = expiringService.generateToken(new UsernamePasswordAuthenticationToken("pippo", null), false);
+        assertThat(expiringService.getUsernameFromAccessToken(expiredToken)).isEmpty();
+    }
+
+}